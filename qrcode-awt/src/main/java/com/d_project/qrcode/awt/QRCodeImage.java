@@ -0,0 +1,250 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.d_project.qrcode.awt;
+
+import com.d_project.qrcode.BitMatrix;
+import com.d_project.qrcode.BitmapRenderer;
+import com.d_project.qrcode.QRCode;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/**
+ * QRコードの java.awt イメージ.
+ *
+ * @author Kazuhiko Arase
+ * @author Leonard Woo
+ */
+public class QRCodeImage {
+
+  private QRCodeImage() {
+  }
+
+  /**
+   * イメージを取得する。
+   *
+   * @param qrCode 作成済みの QRCode
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @return Image instance.
+   */
+  public static BufferedImage createImage(QRCode qrCode, int cellSize, int margin) {
+    return createImage(qrCode.toBitMatrix(), cellSize, margin, BufferedImage.TYPE_INT_RGB);
+  }
+
+  /**
+   * イメージを取得する。
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @return Image instance.
+   */
+  public static BufferedImage createImage(BitMatrix matrix, int cellSize, int margin) {
+    return createImage(matrix, cellSize, margin, BufferedImage.TYPE_INT_RGB);
+  }
+
+  /**
+   * イメージの種類を指定してイメージを取得する。
+   * <br/>1行分のモジュールを走査線に展開し、セルのサイズ分だけラスタに直接コピーします。
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param imageType BufferedImage.TYPE_INT_RGB 又は BufferedImage.TYPE_BYTE_BINARY (1bit)
+   * @return Image instance.
+   */
+  public static BufferedImage createImage(BitMatrix matrix, int cellSize, int margin, int imageType) {
+    int moduleCount = matrix.getModuleCount();
+    int imageSize = moduleCount * cellSize + margin * 2;
+
+    BufferedImage image = new BufferedImage(imageSize, imageSize, imageType);
+    DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+
+    if (imageType == BufferedImage.TYPE_INT_RGB) {
+      int[] data = ( (DataBufferInt) dataBuffer).getData();
+      BitmapRenderer.render(matrix, cellSize, margin, data, 0, imageSize, 0x000000, 0xffffff);
+
+    } else if (imageType == BufferedImage.TYPE_BYTE_BINARY) {
+      // 0: 黒, 1: 白
+      byte[] data = ( (DataBufferByte) dataBuffer).getData();
+      int stride = (imageSize + 7) / 8;
+      Arrays.fill(data, 0, margin * stride, (byte) 0xff);
+      Arrays.fill(data, (imageSize - margin) * stride, imageSize * stride, (byte) 0xff);
+
+      byte[] line = new byte[stride];
+      for (int row = 0; row < moduleCount; row++) {
+        matrix.expandRow(row, cellSize, margin, line);
+        for (int i = 0; i < stride; i++) {
+          line[i] = (byte) ~line[i];
+        }
+        int offset = (margin + row * cellSize) * stride;
+        for (int i = 0; i < cellSize; i++) {
+          System.arraycopy(line, 0, data, offset, stride);
+          offset += stride;
+        }
+      }
+
+    } else {
+      throw new IllegalArgumentException("imageType: " + imageType);
+    }
+
+    return image;
+  }
+
+  /**
+   * 既存のラスタの (x, y) の位置に描画する。
+   * <br/>余白を含むイメージの範囲を描画します。
+   * int のパックされたラスタ及び1バンドの byte のラスタには配列に直接描画し、
+   * それ以外のラスタにはモジュール1行分のピクセルを setPixels() で行ごとに設定します。
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param raster 描画先
+   * @param x 描画先のX座標
+   * @param y 描画先のY座標
+   * @param darkPixel 暗モジュールのピクセル(バンドごとのサンプル)
+   * @param lightPixel 明モジュール及び余白のピクセル(バンドごとのサンプル)
+   */
+  public static void render(BitMatrix matrix, int cellSize, int margin,
+      WritableRaster raster, int x, int y, int[] darkPixel, int[] lightPixel) {
+    int moduleCount = matrix.getModuleCount();
+    int imageSize = moduleCount * cellSize + margin * 2;
+    if (x < raster.getMinX() || raster.getMinX() + raster.getWidth() < x + imageSize
+        || y < raster.getMinY() || raster.getMinY() + raster.getHeight() < y + imageSize) {
+      throw new ArrayIndexOutOfBoundsException("x: " + x + " /y: " + y);
+    }
+
+    SampleModel sampleModel = raster.getSampleModel();
+    DataBuffer dataBuffer = raster.getDataBuffer();
+    int tx = x - raster.getSampleModelTranslateX();
+    int ty = y - raster.getSampleModelTranslateY();
+
+    if (sampleModel instanceof SinglePixelPackedSampleModel sppsm
+        && dataBuffer instanceof DataBufferInt buffer && buffer.getNumBanks() == 1) {
+      BitmapRenderer.render(matrix, cellSize, margin, buffer.getData(),
+          buffer.getOffset() + sppsm.getOffset(tx, ty), sppsm.getScanlineStride(),
+          pack(sppsm, darkPixel), pack(sppsm, lightPixel) );
+
+    } else if (sampleModel instanceof ComponentSampleModel csm
+        && csm.getNumBands() == 1 && csm.getPixelStride() == 1
+        && dataBuffer instanceof DataBufferByte buffer && buffer.getNumBanks() == 1) {
+      BitmapRenderer.render(matrix, cellSize, margin, buffer.getData(),
+          buffer.getOffset() + csm.getOffset(tx, ty), csm.getScanlineStride(),
+          (byte) darkPixel[0], (byte) lightPixel[0]);
+
+    } else {
+      int bands = raster.getNumBands();
+      int[] light = new int[imageSize * bands];
+      for (int i = 0; i < light.length; i++) {
+        light[i] = lightPixel[i % bands];
+      }
+      for (int i = 0; i < margin; i++) {
+        raster.setPixels(x, y + i, imageSize, 1, light);
+        raster.setPixels(x, y + imageSize - 1 - i, imageSize, 1, light);
+      }
+      int[] line = new int[imageSize * bands];
+      for (int row = 0; row < moduleCount; row++) {
+        System.arraycopy(light, 0, line, 0, line.length);
+        int col = matrix.nextDark(row, 0);
+        while (col < moduleCount) {
+          int end = matrix.nextLight(row, col);
+          for (int i = (margin + col * cellSize) * bands; i < (margin + end * cellSize) * bands; i++) {
+            line[i] = darkPixel[i % bands];
+          }
+          col = matrix.nextDark(row, end);
+        }
+        for (int i = 0; i < cellSize; i++) {
+          raster.setPixels(x, y + margin + row * cellSize + i, imageSize, 1, line);
+        }
+      }
+    }
+  }
+
+  private static int pack(SinglePixelPackedSampleModel sampleModel, int[] pixel) {
+    int[] offsets = sampleModel.getBitOffsets();
+    int[] masks = sampleModel.getBitMasks();
+    int packed = 0;
+    for (int b = 0; b < offsets.length; b++) {
+      packed |= (pixel[b] << offsets[b]) & masks[b];
+    }
+    return packed;
+  }
+
+  /**
+   * 暗モジュールの領域を Path2D として取得する。
+   * <br/>各行の連続する暗モジュールを1つの矩形にまとめます。余白は含みません。
+   *
+   * @param matrix モジュール
+   * @param x 左上のX座標
+   * @param y 左上のY座標
+   * @param moduleSize モジュールの大きさ
+   * @return Path2D instance.
+   */
+  public static Path2D createPath(BitMatrix matrix, double x, double y, double moduleSize) {
+    int moduleCount = matrix.getModuleCount();
+    Path2D path = new Path2D.Double(Path2D.WIND_NON_ZERO);
+    for (int row = 0; row < moduleCount; row++) {
+      double top = y + row * moduleSize;
+      double bottom = y + (row + 1) * moduleSize;
+      int col = matrix.nextDark(row, 0);
+      while (col < moduleCount) {
+        int end = matrix.nextLight(row, col);
+        double left = x + col * moduleSize;
+        double right = x + end * moduleSize;
+        path.moveTo(left, top);
+        path.lineTo(right, top);
+        path.lineTo(right, bottom);
+        path.lineTo(left, bottom);
+        path.closePath();
+        col = matrix.nextDark(row, end);
+      }
+    }
+    return path;
+  }
+
+  /**
+   * Graphics2D の (x, y) の位置に暗モジュールを現在の Paint で描画する。
+   * <br/>明モジュール及び余白は描画しないため、下地の上にそのまま合成されます。
+   *
+   * @param g 描画先
+   * @param matrix モジュール
+   * @param x 左上のX座標
+   * @param y 左上のY座標
+   * @param moduleSize モジュールの大きさ
+   */
+  public static void draw(Graphics2D g, BitMatrix matrix, double x, double y, double moduleSize) {
+    g.fill(createPath(matrix, x, y, moduleSize) );
+  }
+}
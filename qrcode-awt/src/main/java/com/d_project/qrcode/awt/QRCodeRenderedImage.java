@@ -0,0 +1,347 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.d_project.qrcode.awt;
+
+import com.d_project.qrcode.BitMatrix;
+
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.Vector;
+
+/**
+ * モジュールを元にしたQRコードの RenderedImage.
+ * <br/>イメージ全体のラスタは持たず、getTile() などで要求された範囲だけを
+ * 1ピクセル1ビット(0: 黒, 1: 白)の MultiPixelPackedSampleModel で生成します。
+ * ImageIO の各 ImageWriter や Graphics2D.drawRenderedImage() にそのまま渡すことができます。
+ * <br/>■使い方
+ * <pre>
+ * ImageIO.write(new QRCodeRenderedImage(qr.toBitMatrix(), 40, 160), "tiff", file);
+ * </pre>
+ *
+ * @author Leonard Woo
+ */
+public class QRCodeRenderedImage implements RenderedImage {
+
+  private static final int MAX_TILE_BYTES = 64 * 1024;
+
+  private final BitMatrix matrix;
+  private final int cellSize;
+  private final int margin;
+  private final int imageSize;
+  private final int tileWidth;
+  private final int tileHeight;
+  private final IndexColorModel colorModel;
+  private final MultiPixelPackedSampleModel sampleModel;
+
+  /**
+   * コンストラクタ
+   * <br/>イメージの幅の帯をタイルとします。
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   */
+  public QRCodeRenderedImage(BitMatrix matrix, int cellSize, int margin) {
+    this(matrix, cellSize, margin, getImageSize(matrix, cellSize, margin),
+        Math.max(1, MAX_TILE_BYTES / ( (getImageSize(matrix, cellSize, margin) + 7) / 8) ) );
+  }
+
+  /**
+   * コンストラクタ
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param tileWidth タイルの幅
+   * @param tileHeight タイルの高さ
+   */
+  public QRCodeRenderedImage(BitMatrix matrix, int cellSize, int margin,
+      int tileWidth, int tileHeight) {
+    if (cellSize <= 0 || margin < 0) {
+      throw new IllegalArgumentException("cellSize: " + cellSize + " /margin: " + margin);
+    }
+    if (tileWidth <= 0 || tileHeight <= 0) {
+      throw new IllegalArgumentException("tileWidth: " + tileWidth + " /tileHeight: " + tileHeight);
+    }
+    this.matrix = matrix;
+    this.cellSize = cellSize;
+    this.margin = margin;
+    this.imageSize = getImageSize(matrix, cellSize, margin);
+    this.tileWidth = Math.min(tileWidth, imageSize);
+    this.tileHeight = Math.min(tileHeight, imageSize);
+    this.colorModel = new IndexColorModel(1, 2,
+        new byte[]{0, (byte) 0xff}, new byte[]{0, (byte) 0xff}, new byte[]{0, (byte) 0xff});
+    this.sampleModel = new MultiPixelPackedSampleModel(DataBuffer.TYPE_BYTE,
+        this.tileWidth, this.tileHeight, 1);
+  }
+
+  private static int getImageSize(BitMatrix matrix, int cellSize, int margin) {
+    return matrix.getModuleCount() * cellSize + margin * 2;
+  }
+
+  @Override
+  public Vector<RenderedImage> getSources() {
+    return null;
+  }
+
+  @Override
+  public Object getProperty(String name) {
+    return Image.UndefinedProperty;
+  }
+
+  @Override
+  public String[] getPropertyNames() {
+    return null;
+  }
+
+  @Override
+  public ColorModel getColorModel() {
+    return colorModel;
+  }
+
+  @Override
+  public SampleModel getSampleModel() {
+    return sampleModel;
+  }
+
+  @Override
+  public int getWidth() {
+    return imageSize;
+  }
+
+  @Override
+  public int getHeight() {
+    return imageSize;
+  }
+
+  @Override
+  public int getMinX() {
+    return 0;
+  }
+
+  @Override
+  public int getMinY() {
+    return 0;
+  }
+
+  @Override
+  public int getNumXTiles() {
+    return (imageSize + tileWidth - 1) / tileWidth;
+  }
+
+  @Override
+  public int getNumYTiles() {
+    return (imageSize + tileHeight - 1) / tileHeight;
+  }
+
+  @Override
+  public int getMinTileX() {
+    return 0;
+  }
+
+  @Override
+  public int getMinTileY() {
+    return 0;
+  }
+
+  @Override
+  public int getTileWidth() {
+    return tileWidth;
+  }
+
+  @Override
+  public int getTileHeight() {
+    return tileHeight;
+  }
+
+  @Override
+  public int getTileGridXOffset() {
+    return 0;
+  }
+
+  @Override
+  public int getTileGridYOffset() {
+    return 0;
+  }
+
+  @Override
+  public Raster getTile(int tileX, int tileY) {
+    if (tileX < 0 || getNumXTiles() <= tileX || tileY < 0 || getNumYTiles() <= tileY) {
+      throw new IndexOutOfBoundsException("tileX: " + tileX + " /tileY: " + tileY);
+    }
+    WritableRaster raster = Raster.createWritableRaster(sampleModel,
+        new Point(tileX * tileWidth, tileY * tileHeight) );
+    render(raster, raster.getBounds().intersection(getBounds() ) );
+    return raster;
+  }
+
+  @Override
+  public Raster getData() {
+    return getData(getBounds() );
+  }
+
+  @Override
+  public Raster getData(Rectangle rect) {
+    Rectangle bounds = rect.intersection(getBounds() );
+    if (bounds.isEmpty() ) {
+      throw new IllegalArgumentException("rect: " + rect);
+    }
+    WritableRaster raster = Raster.createWritableRaster(
+        sampleModel.createCompatibleSampleModel(bounds.width, bounds.height),
+        bounds.getLocation() );
+    render(raster, bounds);
+    return raster;
+  }
+
+  @Override
+  public WritableRaster copyData(WritableRaster raster) {
+    if (raster == null) {
+      return (WritableRaster) getData();
+    }
+    Rectangle bounds = raster.getBounds().intersection(getBounds() );
+    if (!bounds.isEmpty() ) {
+      render(raster, bounds);
+    }
+    return raster;
+  }
+
+  private Rectangle getBounds() {
+    return new Rectangle(0, 0, imageSize, imageSize);
+  }
+
+  /**
+   * bounds の範囲を raster に描画する。
+   * <br/>モジュール1行分の走査線を作成し、セルのサイズ分の行にコピーします。
+   */
+  private void render(WritableRaster raster, Rectangle bounds) {
+    int x0 = bounds.x;
+    int width = bounds.width;
+
+    // 1bit の byte ラスタには直接書き込む
+    DataBufferByte dataBuffer = null;
+    int stride = 0;
+    int bitOffset = 0;
+    if (raster.getSampleModel() instanceof MultiPixelPackedSampleModel mppsm
+        && mppsm.getPixelBitStride() == 1
+        && raster.getDataBuffer() instanceof DataBufferByte buffer
+        && buffer.getNumBanks() == 1) {
+      dataBuffer = buffer;
+      stride = mppsm.getScanlineStride();
+      bitOffset = buffer.getOffset() * 8 + mppsm.getDataBitOffset()
+          + (x0 - raster.getSampleModelTranslateX() );
+    }
+    int shift = bitOffset & 7;
+    byte[] line = new byte[(shift + width + 7) / 8];
+    int[] samples = dataBuffer == null ? new int[width] : null;
+
+    int lineRow = Integer.MIN_VALUE;
+    for (int y = bounds.y; y < bounds.y + bounds.height; y++) {
+      int row = y < margin ? -1 : Math.min( (y - margin) / cellSize, matrix.getModuleCount() );
+      if (row == matrix.getModuleCount() ) {
+        row = -1;
+      }
+      if (row != lineRow) {
+        expandLine(row, x0, width, shift, line);
+        if (samples != null) {
+          for (int i = 0; i < width; i++) {
+            samples[i] = (line[(shift + i) >>> 3] >>> (7 - ( (shift + i) & 7) ) ) & 1;
+          }
+        }
+        lineRow = row;
+      }
+      if (dataBuffer != null) {
+        int bit = (y - raster.getSampleModelTranslateY() ) * stride * 8 + bitOffset;
+        copyBits(line, shift, width, dataBuffer.getData(), bit);
+      } else {
+        raster.setSamples(x0, y, width, 1, 0, samples);
+      }
+    }
+  }
+
+  /**
+   * 列 x0 から width ピクセル分の走査線を、line のビット shift から設定する。
+   * <br/>row が -1 の場合は余白です。
+   */
+  private void expandLine(int row, int x0, int width, int shift, byte[] line) {
+    Arrays.fill(line, (byte) 0xff);
+    if (row < 0) {
+      return;
+    }
+    int x1 = x0 + width;
+    int from = Math.max(0, (x0 - margin) / cellSize);
+    int to = Math.min(matrix.getModuleCount(), (x1 - margin + cellSize - 1) / cellSize);
+    if (x1 <= margin || from >= to) {
+      return;
+    }
+    for (int w = from >>> 6; w <= (to - 1) >>> 6; w++) {
+      long word = matrix.getWord(row, w);
+      while (word != 0) {
+        int bit = Long.numberOfLeadingZeros(word);
+        word &= ~(Long.MIN_VALUE >>> bit);
+        int col = (w << 6) + bit;
+        if (col < from) {
+          continue;
+        }
+        if (col >= to) {
+          break;
+        }
+        int start = Math.max(x0, margin + col * cellSize);
+        int end = Math.min(x1, margin + (col + 1) * cellSize);
+        for (int x = start; x < end; x++) {
+          int i = shift + x - x0;
+          line[i >>> 3] &= (byte) ~(0x80 >>> (i & 7) );
+        }
+      }
+    }
+  }
+
+  /**
+   * line のビット shift から length ビットを data のビット bit にコピーする。
+   * <br/>shift と bit の 8 の剰余は等しいものとします。
+   */
+  private static void copyBits(byte[] line, int shift, int length, byte[] data, int bit) {
+    int index = bit >>> 3;
+    int end = shift + length;
+    for (int i = 0; i < line.length; i++) {
+      int mask = 0xff;
+      if (i == 0) {
+        mask &= 0xff >>> shift;
+      }
+      if (i == line.length - 1 && (end & 7) != 0) {
+        mask &= 0xff << (8 - (end & 7) );
+      }
+      data[index + i] = (byte) ( (data[index + i] & ~mask) | (line[i] & mask) );
+    }
+  }
+}
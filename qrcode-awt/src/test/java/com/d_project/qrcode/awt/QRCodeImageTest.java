@@ -0,0 +1,98 @@
+package com.d_project.qrcode.awt;
+
+import com.d_project.qrcode.BitMatrix;
+import com.d_project.qrcode.ErrorCorrectionLevel;
+import com.d_project.qrcode.QRCode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+public class QRCodeImageTest {
+
+  @Test
+  public void test() {
+    QRCode qr = QRCode.getMinimumQRCode("createImage", ErrorCorrectionLevel.M);
+    int cellSize = 3;
+    int margin = 5;
+    for (int imageType : new int[]{BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_BYTE_BINARY}) {
+      BufferedImage image = QRCodeImage.createImage(qr.toBitMatrix(), cellSize, margin, imageType);
+      int imageSize = qr.getModuleCount() * cellSize + margin * 2;
+      Assertions.assertEquals(imageSize, image.getWidth() );
+      for (int y = 0; y < imageSize; y++) {
+        for (int x = 0; x < imageSize; x++) {
+          boolean dark = margin <= x && x < imageSize - margin
+              && margin <= y && y < imageSize - margin
+              && qr.isDark( (y - margin) / cellSize, (x - margin) / cellSize);
+          Assertions.assertEquals(dark ? 0x000000 : 0xffffff, image.getRGB(x, y) & 0xffffff);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRender() {
+    BitMatrix matrix = QRCode.getMinimumQRCode("render", ErrorCorrectionLevel.Q).toBitMatrix();
+    int cellSize = 2;
+    int margin = 3;
+    int imageSize = matrix.getModuleCount() * cellSize + margin * 2;
+    for (int imageType : new int[]{BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_BYTE_GRAY,
+        BufferedImage.TYPE_3BYTE_BGR}) {
+      BufferedImage canvas = new BufferedImage(imageSize + 20, imageSize + 30, imageType);
+      WritableRaster raster = canvas.getRaster();
+      int bands = raster.getNumBands();
+      int[] dark = new int[bands];
+      int[] light = new int[bands];
+      Arrays.fill(light, 255);
+      if (canvas.getColorModel().hasAlpha() ) {
+        dark[bands - 1] = 255;
+      }
+      QRCodeImage.render(matrix, cellSize, margin, raster, 7, 11, dark, light);
+      assertCanvas(matrix, cellSize, margin, canvas, 7, 11, imageSize);
+    }
+
+    BufferedImage canvas = new BufferedImage(imageSize + 20, imageSize + 30, BufferedImage.TYPE_INT_RGB);
+    Assertions.assertThrows(ArrayIndexOutOfBoundsException.class, () ->
+        QRCodeImage.render(matrix, cellSize, margin, canvas.getRaster(), 21, 0,
+            new int[]{0, 0, 0}, new int[]{255, 255, 255}) );
+  }
+
+  @Test
+  public void testDraw() {
+    BitMatrix matrix = QRCode.getMinimumQRCode("draw", ErrorCorrectionLevel.M).toBitMatrix();
+    int cellSize = 4;
+    int margin = 8;
+    int imageSize = matrix.getModuleCount() * cellSize + margin * 2;
+    BufferedImage canvas = new BufferedImage(imageSize + 20, imageSize + 30, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = canvas.createGraphics();
+    g.setColor(Color.WHITE);
+    g.fillRect(7, 11, imageSize, imageSize);
+    g.setColor(Color.BLACK);
+    QRCodeImage.draw(g, matrix, 7 + margin, 11 + margin, cellSize);
+    g.dispose();
+    assertCanvas(matrix, cellSize, margin, canvas, 7, 11, imageSize);
+  }
+
+  private static void assertCanvas(BitMatrix matrix, int cellSize, int margin,
+      BufferedImage canvas, int x0, int y0, int imageSize) {
+    for (int y = 0; y < canvas.getHeight(); y++) {
+      for (int x = 0; x < canvas.getWidth(); x++) {
+        int rgb = canvas.getRGB(x, y) & 0xffffff;
+        int ix = x - x0;
+        int iy = y - y0;
+        if (ix < 0 || imageSize <= ix || iy < 0 || imageSize <= iy) {
+          Assertions.assertEquals(0x000000, rgb);
+          continue;
+        }
+        boolean dark = margin <= ix && ix < imageSize - margin
+            && margin <= iy && iy < imageSize - margin
+            && matrix.isDark( (iy - margin) / cellSize, (ix - margin) / cellSize);
+        Assertions.assertEquals(dark ? 0x000000 : 0xffffff, rgb, "x: " + x + " /y: " + y);
+      }
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.d_project.qrcode.awt;
+
+import com.d_project.qrcode.BitMatrix;
+import com.d_project.qrcode.ErrorCorrectionLevel;
+import com.d_project.qrcode.QRCode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+import javax.imageio.ImageIO;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+public class QRCodeRenderedImageTest {
+
+  @Test
+  public void testTiles() {
+    BitMatrix matrix = QRCode.getMinimumQRCode("https://example.com/tiles",
+        ErrorCorrectionLevel.M).toBitMatrix();
+    int cellSize = 3;
+    int margin = 5;
+    QRCodeRenderedImage image = new QRCodeRenderedImage(matrix, cellSize, margin, 13, 7);
+    Assertions.assertEquals(13, image.getTileWidth() );
+    for (int ty = 0; ty < image.getNumYTiles(); ty++) {
+      for (int tx = 0; tx < image.getNumXTiles(); tx++) {
+        Raster tile = image.getTile(tx, ty);
+        Assertions.assertEquals(tx * 13, tile.getMinX() );
+        Assertions.assertEquals(ty * 7, tile.getMinY() );
+        Rectangle bounds = tile.getBounds().intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight() ) );
+        assertPixels(matrix, cellSize, margin, tile, bounds);
+      }
+    }
+
+    Rectangle rect = new Rectangle(11, 17, 29, 31);
+    assertPixels(matrix, cellSize, margin, image.getData(rect), rect);
+
+    WritableRaster raster = Raster.createWritableRaster(
+        image.getSampleModel().createCompatibleSampleModel(37, 23), new Point(3, 9) );
+    image.copyData(raster);
+    assertPixels(matrix, cellSize, margin, raster, raster.getBounds() );
+
+    // ビット位置がバイト境界に揃わない子ラスタ
+    WritableRaster child = raster.createWritableChild(6, 10, 25, 20, 6, 10, null);
+    raster.setRect(Raster.createWritableRaster(raster.getSampleModel(), new Point(3, 9) ) );
+    image.copyData(child);
+    assertPixels(matrix, cellSize, margin, child, child.getBounds() );
+    for (int y = 9; y < 9 + 23; y++) {
+      for (int x = 3; x < 3 + 37; x++) {
+        if (!child.getBounds().contains(x, y) ) {
+          Assertions.assertEquals(0, raster.getSample(x, y, 0), "x: " + x + " /y: " + y);
+        }
+      }
+    }
+
+    // 1bit 以外のラスタ
+    BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+    WritableRaster other = rgb.getRaster().createCompatibleWritableRaster(21, 19);
+    image.copyData(other);
+    for (int y = 0; y < 19; y++) {
+      for (int x = 0; x < 21; x++) {
+        Assertions.assertEquals(isDark(matrix, cellSize, margin, x, y) ? 0 : 1, other.getSample(x, y, 0) );
+      }
+    }
+  }
+
+  @Test
+  public void testImageIO() throws Exception {
+    BitMatrix matrix = QRCode.getMinimumQRCode("ImageIO", ErrorCorrectionLevel.H).toBitMatrix();
+    int cellSize = 4;
+    int margin = 9;
+    QRCodeRenderedImage image = new QRCodeRenderedImage(matrix, cellSize, margin);
+    Assertions.assertEquals(1, image.getNumYTiles() );
+
+    for (String format : new String[]{"png", "bmp", "tiff"}) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      Assertions.assertTrue(ImageIO.write(image, format, out), format);
+      BufferedImage read = ImageIO.read(new ByteArrayInputStream(out.toByteArray() ) );
+      BufferedImage expected = QRCodeImage.createImage(matrix, cellSize, margin);
+      Assertions.assertEquals(expected.getWidth(), read.getWidth() );
+      for (int y = 0; y < read.getHeight(); y++) {
+        for (int x = 0; x < read.getWidth(); x++) {
+          Assertions.assertEquals(expected.getRGB(x, y), read.getRGB(x, y), format);
+        }
+      }
+    }
+  }
+
+  private static void assertPixels(BitMatrix matrix, int cellSize, int margin,
+      Raster raster, Rectangle bounds) {
+    for (int y = bounds.y; y < bounds.y + bounds.height; y++) {
+      for (int x = bounds.x; x < bounds.x + bounds.width; x++) {
+        Assertions.assertEquals(isDark(matrix, cellSize, margin, x, y) ? 0 : 1,
+            raster.getSample(x, y, 0), "x: " + x + " /y: " + y);
+      }
+    }
+  }
+
+  private static boolean isDark(BitMatrix matrix, int cellSize, int margin, int x, int y) {
+    int imageSize = matrix.getModuleCount() * cellSize + margin * 2;
+    return margin <= x && x < imageSize - margin
+        && margin <= y && y < imageSize - margin
+        && matrix.isDark( (y - margin) / cellSize, (x - margin) / cellSize);
+  }
+}
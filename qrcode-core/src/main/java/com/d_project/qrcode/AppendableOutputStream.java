@@ -0,0 +1,75 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.d_project.qrcode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.CharBuffer;
+
+/**
+ * バイトをそのまま文字 (ISO-8859-1) として Appendable に追加する OutputStream.
+ * <br/>Base64 の出力を Appendable に直接流すために使用します。
+ * close() で Appendable は閉じません。
+ *
+ * @author Leonard Woo
+ */
+class AppendableOutputStream extends OutputStream {
+
+  private final Appendable out;
+  private final char[] chars;
+  private final CharBuffer buffer;
+
+  /**
+   * コンストラクタ
+   *
+   * @param out 出力先
+   */
+  AppendableOutputStream(Appendable out) {
+    this.out = out;
+    this.chars = new char[1024];
+    this.buffer = CharBuffer.wrap(chars);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    out.append( (char) (b & 0xff) );
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      int n = Math.min(len, chars.length);
+      for (int i = 0; i < n; i++) {
+        chars[i] = (char) (b[off + i] & 0xff);
+      }
+      out.append(buffer, 0, n);
+      off += n;
+      len -= n;
+    }
+  }
+
+  @Override
+  public void close() {
+    // Appendable は閉じない
+  }
+}
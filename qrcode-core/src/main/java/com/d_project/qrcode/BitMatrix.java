@@ -0,0 +1,454 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.d_project.qrcode;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * 作成済みのQRコードのモジュール(不変).
+ * <br/>各行のモジュールを long の配列に詰めて保持します。
+ * 列 col のモジュールは、行の (col / 64) 番目のワードの上位ビットから順に格納されます。
+ *
+ * @author Leonard Woo
+ * @see QRCode#toBitMatrix()
+ */
+public final class BitMatrix {
+
+  private static final int FORMAT_VERSION = 1;
+  private static final int FORMAT_HEADER_LENGTH = 4;
+  private static final int FLAG_CHECKSUM = 0x01;
+
+  private final int typeNumber;
+  private final int errorCorrectionLevel;
+  private final int maskPattern;
+  private final int moduleCount;
+  private final int rowWords;
+  private final long[] bits;
+
+  BitMatrix(int typeNumber, int errorCorrectionLevel, int maskPattern, long[] bits) {
+    this.typeNumber = typeNumber;
+    this.errorCorrectionLevel = errorCorrectionLevel;
+    this.maskPattern = maskPattern;
+    this.moduleCount = typeNumber * 4 + 17;
+    this.rowWords = getRowWords(moduleCount);
+    if (bits.length != moduleCount * rowWords) {
+      throw new IllegalArgumentException("bits: " + bits.length);
+    }
+    this.bits = bits;
+  }
+
+  static int getRowWords(int moduleCount) {
+    return (moduleCount + 63) >>> 6;
+  }
+
+  /**
+   * 型番を取得する。
+   *
+   * @return 型番
+   */
+  public int getTypeNumber() {
+    return typeNumber;
+  }
+
+  /**
+   * 誤り訂正レベルを取得する。
+   *
+   * @return 誤り訂正レベル
+   * @see ErrorCorrectionLevel
+   */
+  public int getErrorCorrectionLevel() {
+    return errorCorrectionLevel;
+  }
+
+  /**
+   * マスクパターンを取得する。
+   *
+   * @return マスクパターン
+   */
+  public int getMaskPattern() {
+    return maskPattern;
+  }
+
+  /**
+   * モジュール数を取得する。
+   *
+   * @return module count.
+   */
+  public int getModuleCount() {
+    return moduleCount;
+  }
+
+  /**
+   * 1行あたりのワード数を取得する。
+   *
+   * @return row word count.
+   */
+  public int getRowWords() {
+    return rowWords;
+  }
+
+  /**
+   * 暗モジュールかどうかを取得する。
+   *
+   * @param row 行 (0 ～ モジュール数 - 1)
+   * @param col 列 (0 ～ モジュール数 - 1)
+   * @return true if this module is dark.
+   */
+  public boolean isDark(int row, int col) {
+    if (row < 0 || moduleCount <= row || col < 0 || moduleCount <= col) {
+      throw new IndexOutOfBoundsException("row: " + row + " /col: " + col);
+    }
+    return (bits[row * rowWords + (col >>> 6)] << (col & 63)) < 0;
+  }
+
+  /**
+   * 行のワードを取得する。
+   * <br/>最上位ビットが列 index * 64 のモジュールです。
+   *
+   * @param row 行 (0 ～ モジュール数 - 1)
+   * @param index ワード (0 ～ getRowWords() - 1)
+   * @return packed modules.
+   */
+  public long getWord(int row, int index) {
+    if (index < 0 || rowWords <= index) {
+      throw new IndexOutOfBoundsException("index: " + index);
+    }
+    return bits[row * rowWords + index];
+  }
+
+  /**
+   * 列 col から 64 列分のモジュール(暗: 1)を上位ビットから取得する。
+   * <br/>隣り合う2つのワードから取り出します。範囲外の行及び列(負の列を含む)は明モジュール(0)です。
+   */
+  long getWindow(int row, int col) {
+    if (row < 0 || moduleCount <= row || moduleCount <= col || col <= -64) {
+      return 0L;
+    }
+    int offset = row * rowWords;
+    long window;
+    if (col < 0) {
+      window = bits[offset] >>> -col;
+    } else {
+      int index = col >>> 6;
+      int shift = col & 63;
+      window = bits[offset + index] << shift;
+      if (shift != 0 && index + 1 < rowWords) {
+        window |= bits[offset + index + 1] >>> (64 - shift);
+      }
+    }
+    int valid = moduleCount - col;
+    if (valid < 64) {
+      window &= -1L << (64 - valid);
+    }
+    return window;
+  }
+
+  /**
+   * 行のモジュールをセルのサイズ及び余白分だけ展開し、1ピクセル1ビット(暗: 1, 上位ビットから)で line に設定する。
+   * <br/>line の長さは (モジュール数 * cellSize + margin * 2 + 7) / 8 以上必要です。
+   *
+   * @param row 行 (0 ～ モジュール数 - 1)
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param line 展開先
+   */
+  public void expandRow(int row, int cellSize, int margin, byte[] line) {
+    int imageSize = moduleCount * cellSize + margin * 2;
+    Arrays.fill(line, 0, (imageSize + 7) / 8, (byte) 0);
+    int offset = row * rowWords;
+    for (int w = 0; w < rowWords; w++) {
+      long word = bits[offset + w];
+      while (word != 0) {
+        int bit = Long.numberOfLeadingZeros(word);
+        word &= ~(Long.MIN_VALUE >>> bit);
+        int x = margin + ( (w << 6) + bit) * cellSize;
+        setBits(line, x, x + cellSize);
+      }
+    }
+  }
+
+  /**
+   * 列 from 以降で最初の暗モジュールの列を取得する。
+   * <br/>見つからない場合はモジュール数を返します。
+   * nextLight() と組み合わせて、行の連続する暗モジュールを取得できます。
+   *
+   * @param row 行 (0 ～ モジュール数 - 1)
+   * @param from 列 (0 以上)
+   * @return column of the next dark module.
+   */
+  public int nextDark(int row, int from) {
+    return nextBit(row, from, 0L);
+  }
+
+  /**
+   * 列 from 以降で最初の明モジュールの列を取得する。
+   * <br/>見つからない場合はモジュール数を返します。
+   *
+   * @param row 行 (0 ～ モジュール数 - 1)
+   * @param from 列 (0 以上)
+   * @return column of the next light module.
+   */
+  public int nextLight(int row, int from) {
+    return nextBit(row, from, -1L);
+  }
+
+  private int nextBit(int row, int from, long invert) {
+    if (row < 0 || moduleCount <= row || from < 0) {
+      throw new IndexOutOfBoundsException("row: " + row + " /from: " + from);
+    }
+    int offset = row * rowWords;
+    int w = from >>> 6;
+    if (w >= rowWords) {
+      return moduleCount;
+    }
+    long word = (bits[offset + w] ^ invert) & (-1L >>> (from & 63) );
+    while (word == 0) {
+      if (++w == rowWords) {
+        return moduleCount;
+      }
+      word = bits[offset + w] ^ invert;
+    }
+    return Math.min( (w << 6) + Long.numberOfLeadingZeros(word), moduleCount);
+  }
+
+  /**
+   * from から to (含まない) までのビットを設定する。
+   */
+  static void setBits(byte[] line, int from, int to) {
+    while (from < to && (from & 7) != 0) {
+      line[from >>> 3] |= (byte) (0x80 >>> (from & 7) );
+      from++;
+    }
+    while (from + 8 <= to) {
+      line[from >>> 3] = (byte) 0xff;
+      from += 8;
+    }
+    while (from < to) {
+      line[from >>> 3] |= (byte) (0x80 >>> (from & 7) );
+      from++;
+    }
+  }
+
+  int getSizeInBytes() {
+    return bits.length * Long.BYTES;
+  }
+
+  /**
+   * バイナリ形式の長さを取得する。
+   *
+   * @param checksum チェックサムを付加する場合は true
+   * @return length in bytes.
+   * @see #writeTo(ByteBuffer, boolean)
+   */
+  public int getEncodedLength(boolean checksum) {
+    return FORMAT_HEADER_LENGTH + (moduleCount * moduleCount + 7) / 8 + (checksum ? 4 : 0);
+  }
+
+  /**
+   * バイナリ形式で ByteBuffer の現在の位置に書き込む。
+   * <br/>形式は次の通りです。(型番40で約4KB)
+   * <pre>
+   * 0: 形式のバージョン (1)
+   * 1: フラグ (bit0: チェックサムあり)
+   * 2: 型番
+   * 3: 誤り訂正レベル (上位4ビット)、マスクパターン (下位4ビット)
+   * 4: モジュール (1モジュール1ビット、暗: 1、行の区切りなしに上位ビットから)
+   * 末尾: チェックサム (先頭からの CRC32、ビッグエンディアン。フラグの bit0 が 1 の場合のみ)
+   * </pre>
+   * 中間の配列は作成せず、ByteBuffer に直接書き込みます。
+   *
+   * @param dst 出力先 (heap 又は direct)
+   * @param checksum チェックサムを付加する場合は true
+   */
+  public void writeTo(ByteBuffer dst, boolean checksum) {
+    if (dst.remaining() < getEncodedLength(checksum) ) {
+      throw new BufferOverflowException();
+    }
+    int start = dst.position();
+    dst.put( (byte) FORMAT_VERSION);
+    dst.put( (byte) (checksum ? FLAG_CHECKSUM : 0) );
+    dst.put( (byte) typeNumber);
+    dst.put( (byte) ( (errorCorrectionLevel << 4) | maskPattern) );
+
+    int current = 0;
+    int currentBits = 0;
+    for (int row = 0; row < moduleCount; row++) {
+      for (int w = 0; w < rowWords; w++) {
+        long word = bits[row * rowWords + w];
+        int remaining = Math.min(64, moduleCount - (w << 6) );
+        while (remaining > 0) {
+          int n = Math.min(8 - currentBits, remaining);
+          current = (current << n) | (int) (word >>> (64 - n) );
+          word <<= n;
+          remaining -= n;
+          currentBits += n;
+          if (currentBits == 8) {
+            dst.put( (byte) current);
+            current = 0;
+            currentBits = 0;
+          }
+        }
+      }
+    }
+    if (currentBits > 0) {
+      dst.put( (byte) (current << (8 - currentBits) ) );
+    }
+
+    if (checksum) {
+      int crc = crc(dst, start, dst.position() );
+      dst.put( (byte) (crc >>> 24) );
+      dst.put( (byte) (crc >>> 16) );
+      dst.put( (byte) (crc >>> 8) );
+      dst.put( (byte) crc);
+    }
+  }
+
+  /**
+   * バイナリ形式のバイト列に変換する。
+   *
+   * @param checksum チェックサムを付加する場合は true
+   * @return bytes.
+   * @see #writeTo(ByteBuffer, boolean)
+   */
+  public byte[] toByteArray(boolean checksum) {
+    ByteBuffer buffer = ByteBuffer.allocate(getEncodedLength(checksum) );
+    writeTo(buffer, checksum);
+    return buffer.array();
+  }
+
+  /**
+   * ByteBuffer の現在の位置からバイナリ形式を読み込む。
+   * <br/>チェックサムがある場合は検査します。読み込んだ分だけ位置を進めます。
+   * ヘッダから求めた長さに満たない場合及び末尾の詰め物のビットが 0 でない場合は不正な形式として扱います。
+   *
+   * @param src 入力 (heap 又は direct)
+   * @return BitMatrix instance.
+   * @throws IllegalArgumentException 形式のバージョン、ヘッダ、長さ、詰め物のビット又はチェックサムが不正な場合
+   * @see #writeTo(ByteBuffer, boolean)
+   */
+  public static BitMatrix readFrom(ByteBuffer src) {
+    if (src.remaining() < FORMAT_HEADER_LENGTH) {
+      throw new IllegalArgumentException("length: " + src.remaining() );
+    }
+    int start = src.position();
+    int version = src.get() & 0xff;
+    if (version != FORMAT_VERSION) {
+      throw new IllegalArgumentException("version: " + version);
+    }
+    int flags = src.get() & 0xff;
+    int typeNumber = src.get() & 0xff;
+    int eclAndMask = src.get() & 0xff;
+    int errorCorrectionLevel = eclAndMask >>> 4;
+    int maskPattern = eclAndMask & 0x0f;
+    if (typeNumber < 1 || 40 < typeNumber || 3 < errorCorrectionLevel || 7 < maskPattern) {
+      throw new IllegalArgumentException("type: " + typeNumber
+          + " /ecl: " + errorCorrectionLevel + " /mask: " + maskPattern);
+    }
+
+    int moduleCount = typeNumber * 4 + 17;
+    int length = (moduleCount * moduleCount + 7) / 8 + ( (flags & FLAG_CHECKSUM) != 0 ? 4 : 0);
+    if (src.remaining() < length) {
+      throw new IllegalArgumentException("length: " + (FORMAT_HEADER_LENGTH + src.remaining() )
+          + " < " + (FORMAT_HEADER_LENGTH + length) );
+    }
+    int rowWords = getRowWords(moduleCount);
+    long[] bits = new long[moduleCount * rowWords];
+    int current = 0;
+    int currentBits = 0;
+    for (int row = 0; row < moduleCount; row++) {
+      for (int w = 0; w < rowWords; w++) {
+        int count = Math.min(64, moduleCount - (w << 6) );
+        long word = 0;
+        int remaining = count;
+        while (remaining > 0) {
+          if (currentBits == 0) {
+            current = src.get() & 0xff;
+            currentBits = 8;
+          }
+          int n = Math.min(currentBits, remaining);
+          word = (word << n) | ( (current >>> (currentBits - n) ) & ( (1 << n) - 1) );
+          currentBits -= n;
+          remaining -= n;
+        }
+        bits[row * rowWords + w] = count == 64 ? word : word << (64 - count);
+      }
+    }
+    if ( (current & ( (1 << currentBits) - 1) ) != 0) {
+      throw new IllegalArgumentException("padding");
+    }
+
+    if ( (flags & FLAG_CHECKSUM) != 0) {
+      int expected = crc(src, start, src.position() );
+      int actual = ( (src.get() & 0xff) << 24) | ( (src.get() & 0xff) << 16)
+          | ( (src.get() & 0xff) << 8) | (src.get() & 0xff);
+      if (expected != actual) {
+        throw new IllegalArgumentException("checksum");
+      }
+    }
+    return new BitMatrix(typeNumber, errorCorrectionLevel, maskPattern, bits);
+  }
+
+  private static int crc(ByteBuffer buffer, int from, int to) {
+    CRC32 crc = new CRC32();
+    crc.update(buffer.duplicate().limit(to).position(from) );
+    return (int) crc.getValue();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof BitMatrix that) ) {
+      return false;
+    }
+    return typeNumber == that.typeNumber
+        && errorCorrectionLevel == that.errorCorrectionLevel
+        && maskPattern == that.maskPattern
+        && Arrays.equals(bits, that.bits);
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = typeNumber;
+    hash = 31 * hash + errorCorrectionLevel;
+    hash = 31 * hash + maskPattern;
+    return 31 * hash + Arrays.hashCode(bits);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buffer = new StringBuilder();
+    for (int row = 0; row < moduleCount; row++) {
+      for (int col = 0; col < moduleCount; col++) {
+        buffer.append(isDark(row, col) ? '1' : '0');
+      }
+      buffer.append('\n');
+    }
+    return buffer.toString();
+  }
+}
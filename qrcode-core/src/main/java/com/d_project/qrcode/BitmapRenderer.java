@@ -0,0 +1,274 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.d_project.qrcode;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 呼び出し側のピクセル配列へのQRコードの描画.
+ * <br/>余白を含むイメージの範囲を、明色で塗りつぶしてから暗モジュールの連続を1回の fill で描画します。
+ * モジュール1行分を描画した後は、セルのサイズ分の行に配列のコピーで複製します。
+ * 中間のイメージやバッファは確保しません。
+ * <br/>ByteBuffer には 1ピクセル1ビット又は1バイトのビットマップ、若しくはモジュールの行をそのまま出力できます。
+ * 書き込みは ByteBuffer の現在の位置から行い、書き込んだ分だけ位置を進めます。
+ * <br/>■使い方
+ * <pre>
+ * // (x, y) の位置に描画
+ * BitmapRenderer.render(matrix, 4, 16, pixels, y * width + x, width, 0xff000000, 0xffffffff);
+ * </pre>
+ *
+ * @author Leonard Woo
+ */
+public final class BitmapRenderer {
+
+  private BitmapRenderer() {
+  }
+
+  /**
+   * 1ピクセル1 int の配列に描画する。
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param pixels 描画先
+   * @param offset イメージの左上のピクセルの位置
+   * @param scanlineStride 描画先の1行の要素数
+   * @param darkPixel 暗モジュールのピクセル値
+   * @param lightPixel 明モジュール及び余白のピクセル値
+   */
+  public static void render(BitMatrix matrix, int cellSize, int margin,
+      int[] pixels, int offset, int scanlineStride, int darkPixel, int lightPixel) {
+    int moduleCount = matrix.getModuleCount();
+    int imageSize = checkBounds(moduleCount, cellSize, margin, pixels.length, offset, scanlineStride);
+
+    for (int i = 0; i < margin; i++) {
+      int start = offset + i * scanlineStride;
+      Arrays.fill(pixels, start, start + imageSize, lightPixel);
+    }
+    for (int row = 0; row < moduleCount; row++) {
+      int start = offset + (margin + row * cellSize) * scanlineStride;
+      Arrays.fill(pixels, start, start + imageSize, lightPixel);
+      int col = matrix.nextDark(row, 0);
+      while (col < moduleCount) {
+        int end = matrix.nextLight(row, col);
+        int x = start + margin + col * cellSize;
+        Arrays.fill(pixels, x, x + (end - col) * cellSize, darkPixel);
+        col = matrix.nextDark(row, end);
+      }
+      for (int i = 1; i < cellSize; i++) {
+        System.arraycopy(pixels, start, pixels, start + i * scanlineStride, imageSize);
+      }
+    }
+    for (int i = imageSize - margin; i < imageSize; i++) {
+      int start = offset + i * scanlineStride;
+      Arrays.fill(pixels, start, start + imageSize, lightPixel);
+    }
+  }
+
+  /**
+   * 1ピクセル1 byte の配列に描画する。
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param pixels 描画先
+   * @param offset イメージの左上のピクセルの位置
+   * @param scanlineStride 描画先の1行の要素数
+   * @param darkPixel 暗モジュールのピクセル値
+   * @param lightPixel 明モジュール及び余白のピクセル値
+   */
+  public static void render(BitMatrix matrix, int cellSize, int margin,
+      byte[] pixels, int offset, int scanlineStride, byte darkPixel, byte lightPixel) {
+    int moduleCount = matrix.getModuleCount();
+    int imageSize = checkBounds(moduleCount, cellSize, margin, pixels.length, offset, scanlineStride);
+
+    for (int i = 0; i < margin; i++) {
+      int start = offset + i * scanlineStride;
+      Arrays.fill(pixels, start, start + imageSize, lightPixel);
+    }
+    for (int row = 0; row < moduleCount; row++) {
+      int start = offset + (margin + row * cellSize) * scanlineStride;
+      Arrays.fill(pixels, start, start + imageSize, lightPixel);
+      int col = matrix.nextDark(row, 0);
+      while (col < moduleCount) {
+        int end = matrix.nextLight(row, col);
+        int x = start + margin + col * cellSize;
+        Arrays.fill(pixels, x, x + (end - col) * cellSize, darkPixel);
+        col = matrix.nextDark(row, end);
+      }
+      for (int i = 1; i < cellSize; i++) {
+        System.arraycopy(pixels, start, pixels, start + i * scanlineStride, imageSize);
+      }
+    }
+    for (int i = imageSize - margin; i < imageSize; i++) {
+      int start = offset + i * scanlineStride;
+      Arrays.fill(pixels, start, start + imageSize, lightPixel);
+    }
+  }
+
+  /**
+   * ByteBuffer に 1ピクセル1 byte のビットマップを出力する。
+   * <br/>各行は scanlineStride バイトごとに配置し、行の残りのバイトは変更しません。
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param dst 出力先 (heap 又は direct)
+   * @param scanlineStride 1行のバイト数
+   * @param darkPixel 暗モジュールのピクセル値
+   * @param lightPixel 明モジュール及び余白のピクセル値
+   */
+  public static void render(BitMatrix matrix, int cellSize, int margin,
+      ByteBuffer dst, int scanlineStride, byte darkPixel, byte lightPixel) {
+    int moduleCount = matrix.getModuleCount();
+    int imageSize = imageSize(moduleCount, cellSize, margin);
+    checkBounds(moduleCount, cellSize, margin, dst, scanlineStride, imageSize);
+
+    byte[] line = new byte[imageSize];
+    Arrays.fill(line, lightPixel);
+    int start = dst.position();
+    for (int i = 0; i < margin; i++) {
+      dst.put(start + i * scanlineStride, line);
+      dst.put(start + (imageSize - 1 - i) * scanlineStride, line);
+    }
+    int index = start + margin * scanlineStride;
+    for (int row = 0; row < moduleCount; row++) {
+      Arrays.fill(line, lightPixel);
+      int col = matrix.nextDark(row, 0);
+      while (col < moduleCount) {
+        int end = matrix.nextLight(row, col);
+        Arrays.fill(line, margin + col * cellSize, margin + end * cellSize, darkPixel);
+        col = matrix.nextDark(row, end);
+      }
+      for (int i = 0; i < cellSize; i++) {
+        dst.put(index, line);
+        index += scanlineStride;
+      }
+    }
+    dst.position(start + imageSize * scanlineStride);
+  }
+
+  /**
+   * ByteBuffer に 1ピクセル1ビット(上位ビットから)のビットマップを出力する。
+   * <br/>各行は scanlineStride バイトごとに配置し、行の残りのバイトは変更しません。
+   * 行の最後のバイトの余りのビットは 0 になります。
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param dst 出力先 (heap 又は direct)
+   * @param scanlineStride 1行のバイト数 ((幅 + 7) / 8 以上)
+   * @param darkBit true の場合は暗モジュールを 1、false の場合は 0 とする
+   */
+  public static void renderBits(BitMatrix matrix, int cellSize, int margin,
+      ByteBuffer dst, int scanlineStride, boolean darkBit) {
+    int moduleCount = matrix.getModuleCount();
+    int imageSize = imageSize(moduleCount, cellSize, margin);
+    int rowBytes = (imageSize + 7) / 8;
+    checkBounds(moduleCount, cellSize, margin, dst, scanlineStride, rowBytes);
+
+    byte[] line = new byte[rowBytes];
+    if (!darkBit) {
+      BitMatrix.setBits(line, 0, imageSize);
+    }
+    int start = dst.position();
+    for (int i = 0; i < margin; i++) {
+      dst.put(start + i * scanlineStride, line);
+      dst.put(start + (imageSize - 1 - i) * scanlineStride, line);
+    }
+    int index = start + margin * scanlineStride;
+    for (int row = 0; row < moduleCount; row++) {
+      matrix.expandRow(row, cellSize, margin, line);
+      if (!darkBit) {
+        for (int i = 0; i < rowBytes; i++) {
+          line[i] = (byte) ~line[i];
+        }
+        // 余りのビットは 0
+        if ( (imageSize & 7) != 0) {
+          line[rowBytes - 1] &= (byte) (0xff << (8 - (imageSize & 7) ) );
+        }
+      }
+      for (int i = 0; i < cellSize; i++) {
+        dst.put(index, line);
+        index += scanlineStride;
+      }
+    }
+    dst.position(start + imageSize * scanlineStride);
+  }
+
+  /**
+   * ByteBuffer にモジュールの各行を1モジュール1ビット(暗: 1, 上位ビットから)でそのまま出力する。
+   * <br/>1行は (モジュール数 + 7) / 8 バイトで、行の最後のバイトの余りのビットは 0 になります。
+   *
+   * @param matrix モジュール
+   * @param dst 出力先 (heap 又は direct)
+   */
+  public static void writeModules(BitMatrix matrix, ByteBuffer dst) {
+    int moduleCount = matrix.getModuleCount();
+    int rowBytes = (moduleCount + 7) / 8;
+    if (dst.remaining() < rowBytes * moduleCount) {
+      throw new BufferOverflowException();
+    }
+    for (int row = 0; row < moduleCount; row++) {
+      for (int i = 0; i < rowBytes; i++) {
+        long word = matrix.getWord(row, i >>> 3);
+        dst.put( (byte) (word >>> (56 - ( (i & 7) << 3) ) ) );
+      }
+    }
+  }
+
+  private static int imageSize(int moduleCount, int cellSize, int margin) {
+    return moduleCount * cellSize + margin * 2;
+  }
+
+  private static void checkBounds(int moduleCount, int cellSize, int margin,
+      ByteBuffer dst, int scanlineStride, int rowBytes) {
+    if (cellSize <= 0 || margin < 0) {
+      throw new IllegalArgumentException("cellSize: " + cellSize + " /margin: " + margin);
+    }
+    if (scanlineStride < rowBytes) {
+      throw new IllegalArgumentException("scanlineStride: " + scanlineStride);
+    }
+    int imageSize = imageSize(moduleCount, cellSize, margin);
+    if (dst.remaining() < (long) imageSize * scanlineStride) {
+      throw new BufferOverflowException();
+    }
+  }
+
+  private static int checkBounds(int moduleCount, int cellSize, int margin,
+      int length, int offset, int scanlineStride) {
+    if (cellSize <= 0 || margin < 0) {
+      throw new IllegalArgumentException("cellSize: " + cellSize + " /margin: " + margin);
+    }
+    int imageSize = imageSize(moduleCount, cellSize, margin);
+    if (scanlineStride < imageSize) {
+      throw new IllegalArgumentException("scanlineStride: " + scanlineStride);
+    }
+    if (offset < 0 || length < offset + (long) (imageSize - 1) * scanlineStride + imageSize) {
+      throw new ArrayIndexOutOfBoundsException("offset: " + offset + " /length: " + length);
+    }
+    return imageSize;
+  }
+}
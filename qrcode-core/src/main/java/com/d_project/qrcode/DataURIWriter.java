@@ -0,0 +1,101 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.d_project.qrcode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * QRコードの data URI (data:image/...;base64,...) の出力.
+ * <br/>各形式の出力を Base64 で符号化しながら Appendable に直接追加します。
+ * イメージ全体のバイト列や Base64 の文字列は作成しません。
+ * <br/>■使い方
+ * <pre>
+ * html.append("&lt;img src=\"");
+ * DataURIWriter.writeGIF(qr.toBitMatrix(), 4, 16, html);
+ * html.append("\"/&gt;");
+ * </pre>
+ *
+ * @author Leonard Woo
+ */
+public final class DataURIWriter {
+
+  private DataURIWriter() {
+  }
+
+  /**
+   * GIF の data URI を出力する。
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param out 出力先
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void writeGIF(BitMatrix matrix, int cellSize, int margin, Appendable out)
+      throws IOException {
+    out.append("data:image/gif;base64,");
+    try (OutputStream base64 = Base64.getEncoder().wrap(new AppendableOutputStream(out) ) ) {
+      GIFWriter.write(matrix, cellSize, margin, base64);
+    }
+  }
+
+  /**
+   * PNG の data URI を出力する。
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param out 出力先
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void writePNG(BitMatrix matrix, int cellSize, int margin, Appendable out)
+      throws IOException {
+    out.append("data:image/png;base64,");
+    try (OutputStream base64 = Base64.getEncoder().wrap(new AppendableOutputStream(out) ) ) {
+      PNGWriter.write(matrix, cellSize, margin, base64);
+    }
+  }
+
+  /**
+   * SVG の data URI を出力する。
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param out 出力先
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void writeSVG(BitMatrix matrix, int cellSize, int margin, Appendable out)
+      throws IOException {
+    out.append("data:image/svg+xml;base64,");
+    try (Writer writer = new OutputStreamWriter(
+        Base64.getEncoder().wrap(new AppendableOutputStream(out) ), StandardCharsets.UTF_8) ) {
+      SVGWriter.write(matrix, cellSize, margin, writer);
+    }
+  }
+}
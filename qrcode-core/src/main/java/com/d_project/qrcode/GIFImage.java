@@ -22,12 +22,10 @@
 
 package com.d_project.qrcode;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * GIFイメージ(B/W)
@@ -37,6 +35,8 @@ import java.util.Map;
  */
 public class GIFImage {
 
+  static final int LZW_MIN_CODE_SIZE = 2;
+
   private final int width;
   private final int height;
   private final int[] data;
@@ -93,6 +93,36 @@ public class GIFImage {
    * @throws IOException if an I/O error occurs.
    */
   public void write(OutputStream out) throws IOException {
+    writeHeader(out, width, height);
+
+    LZWEncoder encoder = new LZWEncoder(out, LZW_MIN_CODE_SIZE);
+    for (int pixel : data) {
+      encoder.write(pixel);
+    }
+    encoder.finish();
+
+    writeTrailer(out);
+  }
+
+  /**
+   * QRコードを GIF で出力する。
+   * <br/>モジュールを1行ずつ展開しながら圧縮し、サブブロックが一杯になるたびに出力します。
+   * イメージの大きさに関わらず、ピクセルのバッファは確保しません。
+   *
+   * @see GIFWriter
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param out OutputStream.
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void write(BitMatrix matrix, int cellSize, int margin, OutputStream out)
+      throws IOException {
+    GIFWriter.write(matrix, cellSize, margin, out);
+  }
+
+  static void writeHeader(OutputStream out, int width, int height) throws IOException {
 
     //---------------------------------
     // GIF Signature
@@ -138,20 +168,10 @@ public class GIFImage {
     //---------------------------------
     // Raster Data
 
-    int lzwMinCodeSize = 2;
-    byte[] raster = getLZWRaster(lzwMinCodeSize);
-    out.write(lzwMinCodeSize);
-
-    int offset = 0;
-    while (raster.length - offset > 255) {
-      out.write(255);
-      out.write(raster, offset, 255);
-      offset += 255;
-    }
+    out.write(LZW_MIN_CODE_SIZE);
+  }
 
-    out.write(raster.length - offset);
-    out.write(raster, offset, raster.length - offset);
-    out.write(0x00);
+  static void writeTrailer(OutputStream out) throws IOException {
 
     //---------------------------------
     // GIF Terminator
@@ -160,93 +180,174 @@ public class GIFImage {
     out.flush();
   }
 
-  private byte[] getLZWRaster(int lzwMinCodeSize) throws IOException {
-    int clearCode = 1 << lzwMinCodeSize;
-    int endCode = (1 << lzwMinCodeSize) + 1;
-    int bitLength = lzwMinCodeSize + 1;
-
-    // Setup LZWTable
-    LZWTable table = new LZWTable();
+  /**
+   * LZW 圧縮.
+   * <br/>ピクセルを1つずつ受け取り、圧縮したデータをサブブロックとして出力します。
+   */
+  static class LZWEncoder {
 
-    for (int i = 0; i < clearCode; i++) {
-      table.add(String.valueOf( (char)i) );
+    private final int lzwMinCodeSize;
+    private final int clearCode;
+    private final int endCode;
+    private final LZWTable table;
+    private final BitOutputStream bitOut;
+    private int bitLength;
+    private int s;
+
+    public LZWEncoder(OutputStream out, int lzwMinCodeSize) {
+      this.lzwMinCodeSize = lzwMinCodeSize;
+      this.clearCode = 1 << lzwMinCodeSize;
+      this.endCode = (1 << lzwMinCodeSize) + 1;
+      this.bitLength = lzwMinCodeSize + 1;
+
+      // Setup LZWTable
+      this.table = new LZWTable(clearCode + 2);
+      this.bitOut = new BitOutputStream(new BlockOutputStream(out) );
+      this.s = -1;
     }
-    table.add(String.valueOf( (char)clearCode) );
-    table.add(String.valueOf( (char)endCode) );
 
+    public void write(int c) throws IOException {
+      if (s == -1) {
+        // clear code
+        bitOut.write(clearCode, bitLength);
+        s = c;
+        return;
+      }
 
-    ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
-    BitOutputStream bitOut = new BitOutputStream(byteOut);
+      int code = table.indexOf(s, c);
+      if (code != -1) {
 
-    try {
-      // clear code
-      bitOut.write(clearCode, bitLength);
+        s = code;
 
-      int dataIndex = 0;
-      String s = String.valueOf( (char)data[dataIndex++]);
+      } else {
 
-      while (dataIndex < data.length) {
+        bitOut.write(s, bitLength);
 
-        char c = (char)data[dataIndex++];
+        if (table.size() < 0xfff) {
 
-        if (table.contains(s + c) ) {
+          if (table.size() == (1 << bitLength) ) {
+            bitLength++;
+          }
 
-          s = s + c;
+          table.add(s, c);
 
         } else {
 
-          bitOut.write(table.indexOf(s), bitLength);
-
-          if (table.size() < 0xfff) {
-
-            if (table.size() == (1 << bitLength) ) {
-              bitLength++;
-            }
-
-            table.add(s + c);
-          }
-
-          s = String.valueOf(c);
+          // テーブルが一杯になったら初期化する
+          bitOut.write(clearCode, bitLength);
+          table.clear();
+          bitLength = lzwMinCodeSize + 1;
         }
+
+        s = c;
       }
+    }
 
-      bitOut.write(table.indexOf(s), bitLength);
+    public void finish() throws IOException {
+      bitOut.write(s, bitLength);
 
       // end code
       bitOut.write(endCode, bitLength);
 
-    } finally {
       bitOut.close();
     }
+  }
+
+  /**
+   * 255 バイトごとにサブブロックとして出力する。
+   * <br/>close() で残りのサブブロックと終端ブロックを出力します。元の OutputStream は閉じません。
+   */
+  private static class BlockOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final byte[] block;
+    private int length;
 
-    return byteOut.toByteArray();
+    public BlockOutputStream(OutputStream out) {
+      this.out = out;
+      this.block = new byte[255];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      block[length++] = (byte) b;
+      if (length == block.length) {
+        flushBlock();
+      }
+    }
+
+    private void flushBlock() throws IOException {
+      out.write(length);
+      out.write(block, 0, length);
+      length = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (length > 0) {
+        flushBlock();
+      }
+      out.write(0x00);
+    }
   }
 
+  /**
+   * LZW テーブル.
+   * <br/>(接頭辞のコード &lt;&lt; 8 | ピクセル) をキーとするオープンアドレス法のハッシュ表です。
+   */
   private static class LZWTable {
 
-    private final Map<String, Integer> map;
+    private static final int CAPACITY = 8192;
 
-    public LZWTable() {
-      map = new HashMap<>();
+    private final int initialSize;
+    private final int[] keys;
+    private final int[] codes;
+    private int size;
+
+    public LZWTable(int initialSize) {
+      this.initialSize = initialSize;
+      this.keys = new int[CAPACITY];
+      this.codes = new int[CAPACITY];
+      clear();
     }
 
-    public void add(String key) {
-      if (contains(key) ) {
-        throw new IllegalArgumentException("dup key:" + key);
+    public void clear() {
+      Arrays.fill(keys, -1);
+      size = initialSize;
+    }
+
+    public void add(int prefix, int pixel) {
+      int key = (prefix << 8) | pixel;
+      int i = hash(key);
+      while (keys[i] != -1) {
+        i = (i + 1) & (CAPACITY - 1);
       }
-      map.put(key, map.size() );
+      keys[i] = key;
+      codes[i] = size++;
     }
 
     public int size() {
-      return map.size();
+      return size;
     }
 
-    public int indexOf(String key) {
-      return map.get(key);
+    public int indexOf(int prefix, int pixel) {
+      int key = (prefix << 8) | pixel;
+      int i = hash(key);
+      while (keys[i] != -1) {
+        if (keys[i] == key) {
+          return codes[i];
+        }
+        i = (i + 1) & (CAPACITY - 1);
+      }
+      return -1;
     }
 
-    public boolean contains(String key) {
-      return map.containsKey(key);
+    private static int hash(int key) {
+      return (key * 0x9e3779b1) >>> 19;
     }
   }
 
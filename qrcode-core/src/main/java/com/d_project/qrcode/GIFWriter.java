@@ -0,0 +1,153 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.d_project.qrcode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * GIFイメージ(B/W)の出力.
+ * <br/>1ピクセル1ビットの走査線を受け取り、LZW で圧縮しながらサブブロックとして出力します。
+ * イメージ全体のバッファは確保しません。
+ * <br/>■使い方
+ * <pre>
+ * GIFWriter.write(qr.toBitMatrix(), 4, 16, out);
+ * </pre>
+ *
+ * @author Leonard Woo
+ * @see PNGWriter
+ */
+public class GIFWriter implements ScanlineWriter {
+
+  private final OutputStream out;
+  private final int width;
+  private final int height;
+
+  private GIFImage.LZWEncoder encoder;
+  private int rowCount;
+
+  /**
+   * コンストラクタ
+   *
+   * @param out 出力先
+   * @param width 幅
+   * @param height 高さ
+   */
+  public GIFWriter(OutputStream out, int width, int height) {
+    if (width <= 0 || height <= 0 || 0xffff < width || 0xffff < height) {
+      throw new IllegalArgumentException("width: " + width + " /height: " + height);
+    }
+    this.out = out;
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * QRコードを GIF で出力する。
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param out 出力先
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void write(BitMatrix matrix, int cellSize, int margin, OutputStream out)
+      throws IOException {
+    int imageSize = matrix.getModuleCount() * cellSize + margin * 2;
+    GIFWriter writer = new GIFWriter(out, imageSize, imageSize);
+    writer.writeMatrix(matrix, cellSize, margin);
+    writer.finish();
+  }
+
+  /**
+   * 1行のバイト数を取得する。
+   *
+   * @return stride.
+   */
+  public int getStride() {
+    return (width + 7) / 8;
+  }
+
+  /**
+   * モジュールをセルのサイズ及び余白分だけ展開して書き込む。
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @throws IOException if an I/O error occurs.
+   */
+  public void writeMatrix(BitMatrix matrix, int cellSize, int margin) throws IOException {
+    byte[] line = new byte[getStride()];
+    for (int i = 0; i < margin; i++) {
+      writeRow(line);
+    }
+    for (int row = 0; row < matrix.getModuleCount(); row++) {
+      matrix.expandRow(row, cellSize, margin, line);
+      for (int i = 0; i < cellSize; i++) {
+        writeRow(line);
+      }
+    }
+    Arrays.fill(line, (byte) 0);
+    for (int i = 0; i < margin; i++) {
+      writeRow(line);
+    }
+  }
+
+  /**
+   * 走査線を書き込む。
+   *
+   * @param line 1ピクセル1ビット(暗: 1, 上位ビットから)の走査線。getStride() バイト以上
+   * @throws IOException if an I/O error occurs.
+   */
+  @Override
+  public void writeRow(byte[] line) throws IOException {
+    if (rowCount >= height) {
+      throw new IllegalStateException("too many rows");
+    }
+    if (encoder == null) {
+      GIFImage.writeHeader(out, width, height);
+      encoder = new GIFImage.LZWEncoder(out, GIFImage.LZW_MIN_CODE_SIZE);
+    }
+
+    // 0: 黒, 1: 白
+    for (int x = 0; x < width; x++) {
+      encoder.write( ( (line[x >>> 3] >>> (7 - (x & 7) ) ) & 1) ^ 1);
+    }
+    rowCount++;
+  }
+
+  /**
+   * 残りのデータ及び終端を出力する。
+   *
+   * @throws IOException if an I/O error occurs.
+   */
+  @Override
+  public void finish() throws IOException {
+    if (rowCount != height) {
+      throw new IllegalStateException("rows: " + rowCount + " != " + height);
+    }
+    encoder.finish();
+    GIFImage.writeTrailer(out);
+  }
+}
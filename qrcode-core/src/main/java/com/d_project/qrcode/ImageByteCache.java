@@ -0,0 +1,374 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.d_project.qrcode;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 描画済みイメージ(GIF 等)のバイト列のキャッシュ.
+ * <br/>バイト列はヒープ外(direct ByteBuffer)のスラブに格納されるため、キャッシュが大きくなってもGCの負荷になりません。
+ * <br/>スラブはリング状に使用され、空きがなくなると最も古いスラブのエントリをまとめて追い出します。
+ * チャネルへの書き込みはロックの外で行われ、書き込み中のスラブは再利用されません。
+ * <br/>■使い方
+ * <pre>
+ * ImageByteCache cache = new ImageByteCache(64 * 1024 * 1024, 1024 * 1024);
+ * ImageByteCache.Key key = new ImageByteCache.Key(matrix, "gif", 4, 16, 0x000000, 0xffffff);
+ * if (!cache.writeTo(key, channel) ) {
+ *   byte[] gif = ...;
+ *   cache.put(key, gif);
+ *   channel.write(ByteBuffer.wrap(gif) );
+ * }
+ * </pre>
+ *
+ * @author Leonard Woo
+ */
+public class ImageByteCache {
+
+  private final int slabSize;
+  private final ByteBuffer[] slabs;
+  private final List<List<Key>> slabKeys;
+  /** スラブごとの書き込み中の数 */
+  private final AtomicIntegerArray pins;
+  private final Map<Key, Entry> entries;
+  private final ReadWriteLock lock;
+  private final LongAdder hitCount;
+  private final LongAdder missCount;
+  private final LongAdder evictionCount;
+
+  private int currentSlab;
+  private int position;
+  private long usedBytes;
+
+  /**
+   * コンストラクタ
+   *
+   * @param maximumBytes 最大バイト数
+   * @param slabSize スラブのサイズ(byte)。これより大きいバイト列はキャッシュされません。
+   */
+  public ImageByteCache(long maximumBytes, int slabSize) {
+    if (slabSize <= 0 || maximumBytes < slabSize) {
+      throw new IllegalArgumentException("maximumBytes: " + maximumBytes + " /slabSize: " + slabSize);
+    }
+    long slabCount = maximumBytes / slabSize;
+    if (slabCount > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("slabCount: " + slabCount);
+    }
+    this.slabSize = slabSize;
+    this.slabs = new ByteBuffer[(int) slabCount];
+    this.slabKeys = new ArrayList<>(slabs.length);
+    for (int i = 0; i < slabs.length; i++) {
+      slabKeys.add(new ArrayList<>() );
+    }
+    this.pins = new AtomicIntegerArray(slabs.length);
+    this.entries = new HashMap<>();
+    this.lock = new ReentrantReadWriteLock();
+    this.hitCount = new LongAdder();
+    this.missCount = new LongAdder();
+    this.evictionCount = new LongAdder();
+    this.currentSlab = 0;
+    this.position = 0;
+  }
+
+  /**
+   * キャッシュされたバイト列をチャネルに書き込む。
+   * <br/>スラブから直接書き込むため、バイト列はコピーされません。
+   * 書き込みはロックを保持せずに行われ、書き込みが終わるまでスラブは再利用されません。
+   *
+   * @param key キー
+   * @param channel 書き込み先
+   * @return true if the key is cached.
+   * @throws IOException if an I/O error occurs.
+   */
+  public boolean writeTo(Key key, WritableByteChannel channel) throws IOException {
+    Entry entry;
+    ByteBuffer buffer;
+    lock.readLock().lock();
+    try {
+      entry = entries.get(key);
+      if (entry == null) {
+        missCount.increment();
+        return false;
+      }
+      hitCount.increment();
+
+      // put() は書き込みロックを保持して pins を検査するため、ここで固定したスラブは再利用されない
+      pins.incrementAndGet(entry.slab);
+      buffer = slabs[entry.slab].duplicate();
+      buffer.limit(entry.offset + entry.length).position(entry.offset);
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    try {
+      while (buffer.hasRemaining() ) {
+        channel.write(buffer);
+      }
+      return true;
+    } finally {
+      pins.decrementAndGet(entry.slab);
+    }
+  }
+
+  /**
+   * キャッシュされているかどうかを取得する。
+   *
+   * @param key キー
+   * @return true if the key is cached.
+   */
+  public boolean contains(Key key) {
+    lock.readLock().lock();
+    try {
+      return entries.containsKey(key);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * バイト列をキャッシュに追加する。
+   *
+   * @param key キー
+   * @param data バイト列
+   * @return false if the data is larger than the slab size, or the next slab is being written.
+   */
+  public boolean put(Key key, byte[] data) {
+    return put(key, ByteBuffer.wrap(data) );
+  }
+
+  /**
+   * バイト列をキャッシュに追加する。
+   * <br/>data の position から limit までをコピーします。data の position は変更されません。
+   * <br/>次のスラブがチャネルへ書き込み中の場合は、待たずにキャッシュせず false を返します。
+   *
+   * @param key キー
+   * @param data バイト列
+   * @return false if the data is larger than the slab size, or the next slab is being written.
+   */
+  public boolean put(Key key, ByteBuffer data) {
+    int length = data.remaining();
+    if (length > slabSize) {
+      return false;
+    }
+
+    lock.writeLock().lock();
+    try {
+      if (entries.containsKey(key) ) {
+        return true;
+      }
+
+      if (slabs[currentSlab] == null) {
+        slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+      }
+
+      if (position + length > slabSize) {
+        // 次のスラブへ移動し、そのスラブのエントリを追い出す
+        int next = (currentSlab + 1) % slabs.length;
+        if (pins.get(next) != 0) {
+          return false;
+        }
+        currentSlab = next;
+        position = 0;
+        if (slabs[currentSlab] == null) {
+          slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+        }
+        evict(currentSlab);
+      }
+
+      ByteBuffer slab = slabs[currentSlab].duplicate();
+      slab.position(position);
+      slab.put(data.duplicate() );
+
+      entries.put(key, new Entry(currentSlab, position, length) );
+      slabKeys.get(currentSlab).add(key);
+      position += length;
+      usedBytes += length;
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void evict(int slab) {
+    List<Key> keys = slabKeys.get(slab);
+    for (Key key : keys) {
+      Entry entry = entries.remove(key);
+      usedBytes -= entry.length;
+      evictionCount.increment();
+    }
+    keys.clear();
+  }
+
+  /**
+   * キャッシュをクリアする。
+   * <br/>確保済みのスラブは解放されません。
+   * 書き込み中のスラブを上書きしないよう、スラブは引き続きリング順に再利用されます。
+   */
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      entries.clear();
+      for (List<Key> keys : slabKeys) {
+        keys.clear();
+      }
+      usedBytes = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * エントリ数を取得する。
+   *
+   * @return entry count.
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return entries.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * キャッシュされているバイト数を取得する。
+   *
+   * @return used bytes.
+   */
+  public long getUsedBytes() {
+    lock.readLock().lock();
+    try {
+      return usedBytes;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * ヒット数を取得する。
+   *
+   * @return hit count.
+   */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /**
+   * ミス数を取得する。
+   *
+   * @return miss count.
+   */
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * 追い出し数を取得する。
+   *
+   * @return eviction count.
+   */
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  private static class Entry {
+
+    private final int slab;
+    private final int offset;
+    private final int length;
+
+    public Entry(int slab, int offset, int length) {
+      this.slab = slab;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  /**
+   * キャッシュのキー.
+   * <br/>モジュールの内容及び描画パラメータから作成します。
+   */
+  public static final class Key {
+
+    private final BitMatrix matrix;
+    private final String format;
+    private final int cellSize;
+    private final int margin;
+    private final int darkColor;
+    private final int lightColor;
+    private final int hash;
+
+    /**
+     * コンストラクタ
+     *
+     * @param matrix モジュール
+     * @param format 形式 (gif 等)
+     * @param cellSize セルのサイズ(pixel)
+     * @param margin 余白(pixel)
+     * @param darkColor 暗モジュールの色(RGB)
+     * @param lightColor 明モジュールの色(RGB)
+     */
+    public Key(BitMatrix matrix, String format, int cellSize, int margin,
+        int darkColor, int lightColor) {
+      this.matrix = Objects.requireNonNull(matrix);
+      this.format = Objects.requireNonNull(format);
+      this.cellSize = cellSize;
+      this.margin = margin;
+      this.darkColor = darkColor;
+      this.lightColor = lightColor;
+      this.hash = Objects.hash(matrix, format, cellSize, margin, darkColor, lightColor);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      return o instanceof Key that
+          && hash == that.hash
+          && cellSize == that.cellSize
+          && margin == that.margin
+          && darkColor == that.darkColor
+          && lightColor == that.lightColor
+          && format.equals(that.format)
+          && matrix.equals(that.matrix);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
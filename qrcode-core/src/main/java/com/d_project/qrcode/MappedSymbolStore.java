@@ -0,0 +1,485 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.d_project.qrcode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * メモリマップされたファイルに作成済みQRコードを保存するストア.
+ * <br/>ディレクトリ内のセグメントファイルにレコードを追記し、起動時に全セグメントを走査してハッシュ索引を作成します。
+ * そのため再起動後も make() を呼び出さずに BitMatrix を取得できます。
+ * <br/>各レコードは CRC32 で検査され、異常終了で途中まで書き込まれたレコード以降は無視されます。
+ * <br/>セグメント数が上限を超えると、最も古いセグメントのうち前回の圧縮以降に参照されたレコードだけを
+ * 新しいセグメントへ移し、古いセグメントを削除します。
+ * <br/>BitMatrix の他に、任意のキーで描画済みのバイト列も保存できます。
+ *
+ * @author Leonard Woo
+ */
+public class MappedSymbolStore implements Closeable {
+
+  private static final int SEGMENT_MAGIC = 0x51525347; // QRSG
+  private static final int SEGMENT_VERSION = 2;
+  private static final int SEGMENT_HEADER_LENGTH = 8;
+  private static final int RECORD_MAGIC = 0x51525245; // QRRE
+  private static final int RECORD_HEADER_LENGTH = 12;
+  private static final int RECORD_TRAILER_LENGTH = 4;
+  private static final String SEGMENT_SUFFIX = ".seg";
+
+  private static final byte TYPE_MATRIX = 0;
+  private static final byte TYPE_BYTES = 1;
+
+  private final Path directory;
+  private final boolean readOnly;
+  private final int segmentSize;
+  private final int maxSegments;
+  private final TreeMap<Integer, MappedByteBuffer> segments;
+  private final Map<SymbolKey, Location> index;
+
+  private int activeSegment;
+  /** ディレクトリ内のセグメントファイル名の最大の番号 (無効なファイルを含む) */
+  private int lastSegment;
+  private int position;
+  private long hitCount;
+  private long missCount;
+  private boolean closed;
+
+  private MappedSymbolStore(Path directory, boolean readOnly, int segmentSize, int maxSegments) {
+    this.directory = directory;
+    this.readOnly = readOnly;
+    this.segmentSize = segmentSize;
+    this.maxSegments = maxSegments;
+    this.segments = new TreeMap<>();
+    this.index = new HashMap<>();
+  }
+
+  /**
+   * 読み書き可能なストアを開く。
+   *
+   * @param directory セグメントファイルのディレクトリ
+   * @param segmentSize セグメントファイルのサイズ(byte)
+   * @param maxSegments セグメントファイルの最大数
+   * @return MappedSymbolStore instance.
+   * @throws IOException if an I/O error occurs.
+   */
+  public static MappedSymbolStore open(Path directory, int segmentSize, int maxSegments)
+      throws IOException {
+    if (segmentSize <= SEGMENT_HEADER_LENGTH || maxSegments < 2) {
+      throw new IllegalArgumentException("segmentSize: " + segmentSize + " /maxSegments: " + maxSegments);
+    }
+    Files.createDirectories(directory);
+    MappedSymbolStore store = new MappedSymbolStore(directory, false, segmentSize, maxSegments);
+    store.load();
+    if (store.segments.isEmpty() ) {
+      store.roll();
+    }
+    return store;
+  }
+
+  /**
+   * 読み込み専用でストアを開く。
+   *
+   * @param directory セグメントファイルのディレクトリ
+   * @return MappedSymbolStore instance.
+   * @throws IOException if an I/O error occurs.
+   */
+  public static MappedSymbolStore openReadOnly(Path directory) throws IOException {
+    MappedSymbolStore store = new MappedSymbolStore(directory, true, 0, Integer.MAX_VALUE);
+    store.load();
+    return store;
+  }
+
+  /**
+   * ストアから BitMatrix を取得する。
+   * <br/>ストアにない場合は qrCode.make() を呼び出して作成し、読み書き可能であればストアに追加します。
+   *
+   * @param qrCode 諸パラメータを設定した QRCode
+   * @return BitMatrix instance.
+   * @throws IOException if an I/O error occurs.
+   */
+  public BitMatrix make(QRCode qrCode) throws IOException {
+    SymbolKey key = SymbolKey.of(qrCode);
+    BitMatrix matrix = get(key);
+    if (matrix == null) {
+      qrCode.make();
+      matrix = qrCode.toBitMatrix();
+      if (!readOnly) {
+        append(TYPE_MATRIX, key, matrix.toByteArray(false) );
+      }
+    }
+    return matrix;
+  }
+
+  /**
+   * キーに対するバイト列(描画済みイメージ等)を取得する。
+   *
+   * @param key キー
+   * @return バイト列。ない場合は null
+   */
+  public synchronized byte[] getBytes(byte[] key) {
+    checkOpen();
+    ByteBuffer value = read(typedKey(TYPE_BYTES, key) );
+    if (value == null) {
+      return null;
+    }
+    byte[] bytes = new byte[value.remaining()];
+    value.get(bytes);
+    return bytes;
+  }
+
+  /**
+   * キーに対するバイト列(描画済みイメージ等)を保存する。
+   *
+   * @param key キー
+   * @param value バイト列
+   * @throws IOException if an I/O error occurs.
+   */
+  public void putBytes(byte[] key, byte[] value) throws IOException {
+    append(TYPE_BYTES, new SymbolKey(key), value);
+  }
+
+  private synchronized BitMatrix get(SymbolKey key) {
+    checkOpen();
+    ByteBuffer value = read(typedKey(TYPE_MATRIX, key.getBytes() ) );
+    return value == null ? null : BitMatrix.readFrom(value);
+  }
+
+  private ByteBuffer read(SymbolKey key) {
+    Location location = index.get(key);
+    if (location == null) {
+      missCount++;
+      return null;
+    }
+    hitCount++;
+    location.hit = true;
+    ByteBuffer buffer = segments.get(location.segment).duplicate();
+    buffer.limit(location.offset + location.length).position(location.offset);
+    return buffer.slice();
+  }
+
+  private synchronized void append(byte type, SymbolKey key, byte[] value) throws IOException {
+    checkOpen();
+    if (readOnly) {
+      throw new IllegalStateException("read only");
+    }
+
+    SymbolKey typedKey = typedKey(type, key.getBytes() );
+    if (index.containsKey(typedKey) ) {
+      return;
+    }
+
+    int length = recordLength(typedKey.getLength(), value.length);
+    if (SEGMENT_HEADER_LENGTH + length > segmentSize) {
+      throw new IllegalArgumentException("record too large: " + length);
+    }
+
+    if (position + length > segmentSize) {
+      roll();
+    }
+    write(typedKey, value);
+  }
+
+  private void write(SymbolKey key, byte[] value) {
+    byte[] keyBytes = key.getBytes();
+    ByteBuffer buffer = segments.get(activeSegment).duplicate();
+    buffer.position(position);
+    buffer.putInt(RECORD_MAGIC);
+    buffer.putInt(keyBytes.length);
+    buffer.putInt(value.length);
+    buffer.put(keyBytes);
+    int valueOffset = buffer.position();
+    buffer.put(value);
+
+    CRC32 crc = new CRC32();
+    crc.update(keyBytes);
+    crc.update(value);
+    buffer.putInt( (int) crc.getValue() );
+
+    index.put(key, new Location(activeSegment, valueOffset, value.length) );
+    position = buffer.position();
+  }
+
+  private static int recordLength(int keyLength, int valueLength) {
+    return RECORD_HEADER_LENGTH + keyLength + valueLength + RECORD_TRAILER_LENGTH;
+  }
+
+  private static SymbolKey typedKey(byte type, byte[] key) {
+    byte[] bytes = new byte[key.length + 1];
+    bytes[0] = type;
+    System.arraycopy(key, 0, bytes, 1, key.length);
+    return new SymbolKey(bytes);
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("closed");
+    }
+  }
+
+  /**
+   * 新しいセグメントを作成し、上限を超えた古いセグメントを圧縮する。
+   */
+  private void roll() throws IOException {
+    newSegment();
+
+    while (segments.size() > maxSegments) {
+      compact(segments.firstKey() );
+    }
+  }
+
+  /**
+   * 新しいセグメントを作成し、書き込み先にする。
+   */
+  private void newSegment() throws IOException {
+    if (!segments.isEmpty() ) {
+      segments.get(activeSegment).force();
+    }
+
+    activeSegment = ++lastSegment;
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(segmentPath(activeSegment),
+        StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE) ) {
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+    buffer.putInt(0, SEGMENT_MAGIC);
+    buffer.putInt(4, SEGMENT_VERSION);
+    // ヘッダのないセグメントが残らないよう、ヘッダを先に書き込む
+    buffer.force();
+    segments.put(activeSegment, buffer);
+    position = SEGMENT_HEADER_LENGTH;
+  }
+
+  private void compact(int segment) throws IOException {
+    ByteBuffer buffer = segments.remove(segment);
+
+    List<Map.Entry<SymbolKey, Location>> hot = new ArrayList<>();
+    Iterator<Map.Entry<SymbolKey, Location>> it = index.entrySet().iterator();
+    while (it.hasNext() ) {
+      Map.Entry<SymbolKey, Location> entry = it.next();
+      Location location = entry.getValue();
+      if (location.segment == segment) {
+        it.remove();
+        if (location.hit) {
+          hot.add(entry);
+        }
+      } else {
+        location.hit = false;
+      }
+    }
+
+    for (Map.Entry<SymbolKey, Location> entry : hot) {
+      Location location = entry.getValue();
+      int length = recordLength(entry.getKey().getLength(), location.length);
+      if (position + length > segmentSize) {
+        // 書き込み先が一杯の場合は新しいセグメントに続ける。
+        // 移したレコードは参照済みではないため、次の圧縮では残らない
+        newSegment();
+      }
+      byte[] value = new byte[location.length];
+      buffer.get(location.offset, value);
+      write(entry.getKey(), value);
+    }
+
+    Files.deleteIfExists(segmentPath(segment) );
+  }
+
+  private void load() throws IOException {
+    List<Path> paths = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX) ) {
+      for (Path path : stream) {
+        paths.add(path);
+      }
+    }
+
+    for (Path path : paths) {
+      String name = path.getFileName().toString();
+      int id;
+      try {
+        id = Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length() ) );
+      } catch (NumberFormatException e) {
+        continue;
+      }
+
+      lastSegment = Math.max(lastSegment, id);
+
+      MappedByteBuffer buffer;
+      try (FileChannel channel = readOnly
+          ? FileChannel.open(path, StandardOpenOption.READ)
+          : FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE) ) {
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_LENGTH);
+        if (channel.read(header, 0) < SEGMENT_HEADER_LENGTH
+            || header.getInt(0) != SEGMENT_MAGIC
+            || header.getInt(4) != SEGMENT_VERSION) {
+          buffer = null;
+        } else {
+          buffer = channel.map(readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE,
+              0, channel.size() );
+        }
+      }
+      if (buffer == null) {
+        // ヘッダが不完全なセグメント(作成中の異常終了)や古い形式のセグメントは読めないため、
+        // 書き込み可能であれば削除する
+        if (!readOnly) {
+          Files.delete(path);
+        }
+        continue;
+      }
+      segments.put(id, buffer);
+    }
+
+    for (Map.Entry<Integer, MappedByteBuffer> entry : segments.entrySet() ) {
+      activeSegment = entry.getKey();
+      position = scan(entry.getKey(), entry.getValue() );
+    }
+
+    if (!readOnly && !segments.isEmpty() && segments.get(activeSegment).capacity() != segmentSize) {
+      // セグメントのサイズが変更された場合は新しいセグメントに追記する
+      roll();
+    }
+  }
+
+  /**
+   * セグメントのレコードを索引に追加する。
+   *
+   * @return 有効なレコードの終端
+   */
+  private int scan(int segment, ByteBuffer buffer) {
+    int offset = SEGMENT_HEADER_LENGTH;
+    CRC32 crc = new CRC32();
+
+    while (offset + RECORD_HEADER_LENGTH <= buffer.capacity() ) {
+      if (buffer.getInt(offset) != RECORD_MAGIC) {
+        break;
+      }
+      int keyLength = buffer.getInt(offset + 4);
+      int valueLength = buffer.getInt(offset + 8);
+      if (keyLength < 0 || valueLength < 0
+          || (long) offset + recordLength(keyLength, valueLength) > buffer.capacity() ) {
+        break;
+      }
+
+      int keyOffset = offset + RECORD_HEADER_LENGTH;
+      int valueOffset = keyOffset + keyLength;
+      int crcOffset = valueOffset + valueLength;
+
+      crc.reset();
+      crc.update(buffer.duplicate().limit(crcOffset).position(keyOffset) );
+      if ( (int) crc.getValue() != buffer.getInt(crcOffset) ) {
+        break;
+      }
+
+      byte[] key = new byte[keyLength];
+      buffer.get(keyOffset, key);
+      index.put(new SymbolKey(key), new Location(segment, valueOffset, valueLength) );
+
+      offset = crcOffset + RECORD_TRAILER_LENGTH;
+    }
+
+    return offset;
+  }
+
+  private Path segmentPath(int segment) {
+    return directory.resolve(String.format("%08d", segment) + SEGMENT_SUFFIX);
+  }
+
+  /**
+   * エントリ数を取得する。
+   *
+   * @return entry count.
+   */
+  public synchronized int size() {
+    return index.size();
+  }
+
+  /**
+   * ヒット数を取得する。
+   *
+   * @return hit count.
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * ミス数を取得する。
+   *
+   * @return miss count.
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * 書き込んだレコードをディスクに反映する。
+   */
+  public synchronized void flush() {
+    checkOpen();
+    if (!readOnly && !segments.isEmpty() ) {
+      segments.get(activeSegment).force();
+    }
+  }
+
+  /**
+   * ストアを閉じる。
+   * <br/>閉じた後の make(), getBytes(), putBytes(), flush() は IllegalStateException になります。
+   */
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    flush();
+    segments.clear();
+    index.clear();
+    closed = true;
+  }
+
+  private static class Location {
+
+    private final int segment;
+    private final int offset;
+    private final int length;
+    private boolean hit;
+
+    public Location(int segment, int offset, int length) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.d_project.qrcode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 1つのQRコードを複数の大きさ及び形式で出力する。
+ * <br/>モジュールの各行を1回だけ走査し、各出力先の PNGWriter 又は GIFWriter に走査線を書き込みます。
+ * セルのサイズと余白が同じ出力先は、展開した走査線を共有します。
+ * <br/>setParallel() を呼び出すと、セルのサイズと余白の組ごとに並列で出力します。
+ * <br/>■使い方
+ * <pre>
+ * MultiResolutionWriter writer = new MultiResolutionWriter(qr.toBitMatrix() );
+ * writer.add(2, 8, "png", thumbnail);
+ * writer.add(4, 16, "png", retina);
+ * writer.add(4, 16, "gif", legacy);
+ * writer.write();
+ * </pre>
+ *
+ * @author Leonard Woo
+ */
+public class MultiResolutionWriter {
+
+  private final BitMatrix matrix;
+  private final List<Group> groups;
+  private Executor executor;
+
+  /**
+   * コンストラクタ
+   *
+   * @param matrix モジュール
+   */
+  public MultiResolutionWriter(BitMatrix matrix) {
+    this.matrix = matrix;
+    this.groups = new ArrayList<>();
+  }
+
+  /**
+   * 出力先を追加する。
+   *
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param format 形式 (png 又は gif)
+   * @param out 出力先
+   * @return this
+   */
+  public MultiResolutionWriter add(int cellSize, int margin, String format, OutputStream out) {
+    if (cellSize <= 0 || margin < 0) {
+      throw new IllegalArgumentException("cellSize: " + cellSize + " /margin: " + margin);
+    }
+    ScanlineWriter.checkFormat(format);
+    Group group = null;
+    for (Group g : groups) {
+      if (g.cellSize == cellSize && g.margin == margin) {
+        group = g;
+        break;
+      }
+    }
+    if (group == null) {
+      group = new Group(cellSize, margin);
+      groups.add(group);
+    }
+    group.targets.add(new Target(format, out) );
+    return this;
+  }
+
+  /**
+   * セルのサイズと余白の組ごとに並列で出力する。
+   *
+   * @param executor 出力に使用する Executor。null の場合は呼び出したスレッドで出力します。
+   */
+  public void setParallel(Executor executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * 全ての出力先に出力する。
+   *
+   * @throws IOException if an I/O error occurs.
+   */
+  public void write() throws IOException {
+    if (executor == null || groups.size() < 2) {
+      write(groups);
+      return;
+    }
+
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[groups.size()];
+    for (int i = 0; i < futures.length; i++) {
+      List<Group> group = List.of(groups.get(i) );
+      futures[i] = CompletableFuture.runAsync(() -> {
+        try {
+          write(group);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }, executor);
+    }
+    try {
+      CompletableFuture.allOf(futures).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof UncheckedIOException cause) {
+        throw cause.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private void write(List<Group> groups) throws IOException {
+    int moduleCount = matrix.getModuleCount();
+    for (Group group : groups) {
+      group.start(moduleCount);
+      group.writeMargin();
+    }
+    for (int row = 0; row < moduleCount; row++) {
+      for (Group group : groups) {
+        matrix.expandRow(row, group.cellSize, group.margin, group.line);
+        for (int i = 0; i < group.cellSize; i++) {
+          group.writeRow(group.line);
+        }
+      }
+    }
+    for (Group group : groups) {
+      group.writeMargin();
+      group.finish();
+    }
+  }
+
+  /**
+   * セルのサイズと余白が同じ出力先.
+   */
+  private static class Group {
+
+    private final int cellSize;
+    private final int margin;
+    private final List<Target> targets;
+    private byte[] line;
+
+    public Group(int cellSize, int margin) {
+      this.cellSize = cellSize;
+      this.margin = margin;
+      this.targets = new ArrayList<>();
+    }
+
+    public void start(int moduleCount) {
+      int imageSize = moduleCount * cellSize + margin * 2;
+      line = new byte[(imageSize + 7) / 8];
+      for (Target target : targets) {
+        target.start(imageSize);
+      }
+    }
+
+    public void writeMargin() throws IOException {
+      Arrays.fill(line, (byte) 0);
+      for (int i = 0; i < margin; i++) {
+        writeRow(line);
+      }
+    }
+
+    public void writeRow(byte[] line) throws IOException {
+      for (Target target : targets) {
+        target.writeRow(line);
+      }
+    }
+
+    public void finish() throws IOException {
+      for (Target target : targets) {
+        target.finish();
+      }
+    }
+  }
+
+  private static class Target {
+
+    private final String format;
+    private final OutputStream out;
+    private ScanlineWriter writer;
+
+    public Target(String format, OutputStream out) {
+      this.format = format;
+      this.out = out;
+    }
+
+    public void start(int imageSize) {
+      writer = ScanlineWriter.create(format, out, imageSize, imageSize);
+    }
+
+    public void writeRow(byte[] line) throws IOException {
+      writer.writeRow(line);
+    }
+
+    public void finish() throws IOException {
+      writer.finish();
+    }
+  }
+}
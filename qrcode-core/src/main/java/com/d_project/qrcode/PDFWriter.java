@@ -0,0 +1,364 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.d_project.qrcode;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * PDF(ベクタ)の出力.
+ * <br/>各行の連続する暗モジュールを1つの矩形 (re) にまとめ、ページごとに1つの内容ストリームとして出力します。
+ * 内容ストリームの長さは間接オブジェクトで後から出力するため、ページの内容をバッファせずに圧縮しながら書き込めます。
+ * 保持するのはオブジェクトの位置とページの一覧だけです。
+ * <br/>座標の単位はポイント(1/72 インチ)で、ページの左上が原点です。
+ * <br/>■使い方
+ * <pre>
+ * PDFWriter pdf = new PDFWriter(out, 595, 842); // A4
+ * pdf.writeSheets(matrices, 4, 6, 130, 3);
+ * pdf.finish();
+ * </pre>
+ *
+ * @author Leonard Woo
+ */
+public class PDFWriter {
+
+  private static final int CATALOG = 1;
+  private static final int PAGES = 2;
+  /** クワイエットゾーン(モジュール) */
+  private static final int QUIET_ZONE = 4;
+
+  private final CountingOutputStream out;
+  private final double pageWidth;
+  private final double pageHeight;
+  private final Deflater deflater;
+  private final StringBuilder buffer;
+  private byte[] bytes;
+
+  private long[] offsets;
+  private int objectCount;
+  private int[] pages;
+  private int pageCount;
+  private DeflaterOutputStream content;
+  private long contentStart;
+
+  /**
+   * コンストラクタ
+   *
+   * @param out 出力先
+   * @param pageWidth ページの幅(pt)
+   * @param pageHeight ページの高さ(pt)
+   */
+  public PDFWriter(OutputStream out, double pageWidth, double pageHeight) {
+    if (!(pageWidth > 0) || !(pageHeight > 0) ) {
+      throw new IllegalArgumentException("pageWidth: " + pageWidth + " /pageHeight: " + pageHeight);
+    }
+    this.out = new CountingOutputStream(out);
+    this.pageWidth = pageWidth;
+    this.pageHeight = pageHeight;
+    this.deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    this.buffer = new StringBuilder();
+    this.bytes = new byte[1024];
+    this.offsets = new long[16];
+    this.objectCount = PAGES;
+    this.pages = new int[16];
+  }
+
+  /**
+   * ページを開始する。
+   *
+   * @throws IOException if an I/O error occurs.
+   */
+  public void beginPage() throws IOException {
+    if (content != null) {
+      throw new IllegalStateException("page not ended");
+    }
+    if (out.count == 0) {
+      // 2行目はバイナリを含むことを示すコメント
+      out.write("%PDF-1.4\n%âãÏÓ\n".getBytes(StandardCharsets.ISO_8859_1) );
+    }
+
+    int page = beginObject();
+    if (pageCount == pages.length) {
+      pages = Arrays.copyOf(pages, pageCount * 2);
+    }
+    pages[pageCount++] = page;
+    buffer.setLength(0);
+    buffer.append("<< /Type /Page /Parent ").append(PAGES).append(" 0 R /MediaBox [0 0 ");
+    appendNumber(pageWidth);
+    buffer.append(' ');
+    appendNumber(pageHeight);
+    buffer.append("] /Contents ").append(page + 1).append(" 0 R /Resources << >> >>\nendobj\n");
+    writeBuffer(out);
+
+    int contents = beginObject();
+    buffer.setLength(0);
+    buffer.append("<< /Length ").append(contents + 1).append(" 0 R /Filter /FlateDecode >>\nstream\n");
+    writeBuffer(out);
+    contentStart = out.count;
+    deflater.reset();
+    content = new DeflaterOutputStream(new FilterOutputStream(out) {
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+      }
+
+      @Override
+      public void close() {
+        // 元の出力先は閉じない
+      }
+    }, deflater, 8192);
+
+    buffer.setLength(0);
+    buffer.append("0 g\n");
+    writeBuffer(content);
+  }
+
+  /**
+   * 現在のページに暗モジュールを描画する。
+   *
+   * @param matrix モジュール
+   * @param x 左上のX座標(pt)。余白は含みません。
+   * @param y 左上のY座標(pt, 上から)。余白は含みません。
+   * @param moduleSize モジュールの大きさ(pt)
+   * @throws IOException if an I/O error occurs.
+   */
+  public void drawSymbol(BitMatrix matrix, double x, double y, double moduleSize) throws IOException {
+    if (content == null) {
+      throw new IllegalStateException("page not begun");
+    }
+    int moduleCount = matrix.getModuleCount();
+    for (int row = 0; row < moduleCount; row++) {
+      buffer.setLength(0);
+      // PDF の座標は下から
+      double bottom = pageHeight - y - (row + 1) * moduleSize;
+      int col = matrix.nextDark(row, 0);
+      while (col < moduleCount) {
+        int end = matrix.nextLight(row, col);
+        appendNumber(x + col * moduleSize);
+        buffer.append(' ');
+        appendNumber(bottom);
+        buffer.append(' ');
+        appendNumber( (end - col) * moduleSize);
+        buffer.append(' ');
+        appendNumber(moduleSize);
+        buffer.append(" re\n");
+        col = matrix.nextDark(row, end);
+      }
+      writeBuffer(content);
+    }
+    buffer.setLength(0);
+    buffer.append("f\n");
+    writeBuffer(content);
+  }
+
+  /**
+   * ページを終了する。
+   *
+   * @throws IOException if an I/O error occurs.
+   */
+  public void endPage() throws IOException {
+    if (content == null) {
+      throw new IllegalStateException("page not begun");
+    }
+    content.finish();
+    content = null;
+    long length = out.count - contentStart;
+
+    buffer.setLength(0);
+    buffer.append("\nendstream\nendobj\n");
+    writeBuffer(out);
+
+    beginObject();
+    buffer.setLength(0);
+    buffer.append(length).append("\nendobj\n");
+    writeBuffer(out);
+  }
+
+  /**
+   * QRコードを格子状に並べてページに出力する。
+   * <br/>columns * rows 個ごとに新しいページを開始し、各QRコードはタイルの中央に配置します。
+   * 格子はページの中央に配置します。
+   * <br/>隣のQRコードと接しないよう、各QRコードの周囲に 4 モジュールのクワイエットゾーンが
+   * タイルに収まらない場合は例外になります。
+   *
+   * @param matrices モジュール
+   * @param columns 1行のタイルの数
+   * @param rows 1ページの行の数
+   * @param tileSize タイルの大きさ(pt)
+   * @param moduleSize モジュールの大きさ(pt)
+   * @throws IOException if an I/O error occurs.
+   */
+  public void writeSheets(Iterator<BitMatrix> matrices, int columns, int rows,
+      double tileSize, double moduleSize) throws IOException {
+    if (columns <= 0 || rows <= 0) {
+      throw new IllegalArgumentException("columns: " + columns + " /rows: " + rows);
+    }
+    double left = (pageWidth - columns * tileSize) / 2;
+    double top = (pageHeight - rows * tileSize) / 2;
+    while (matrices.hasNext() ) {
+      beginPage();
+      for (int i = 0; i < columns * rows && matrices.hasNext(); i++) {
+        BitMatrix matrix = matrices.next();
+        double size = matrix.getModuleCount() * moduleSize;
+        if (size + QUIET_ZONE * 2 * moduleSize > tileSize) {
+          throw new IllegalArgumentException("symbol " + size + "pt with quiet zone does not fit in tile");
+        }
+        drawSymbol(matrix,
+            left + (i % columns) * tileSize + (tileSize - size) / 2,
+            top + (i / columns) * tileSize + (tileSize - size) / 2,
+            moduleSize);
+      }
+      endPage();
+    }
+  }
+
+  /**
+   * ページの一覧、カタログ、相互参照表及びトレーラを出力する。
+   *
+   * @throws IOException if an I/O error occurs.
+   */
+  public void finish() throws IOException {
+    if (content != null) {
+      throw new IllegalStateException("page not ended");
+    }
+    if (pageCount == 0) {
+      throw new IllegalStateException("no pages");
+    }
+
+    beginObject(PAGES);
+    buffer.setLength(0);
+    buffer.append("<< /Type /Pages /Kids [");
+    for (int i = 0; i < pageCount; i++) {
+      if (buffer.length() > 4096) {
+        writeBuffer(out);
+        buffer.setLength(0);
+      }
+      buffer.append(i == 0 ? "" : " ").append(pages[i]).append(" 0 R");
+    }
+    buffer.append("] /Count ").append(pageCount).append(" >>\nendobj\n");
+    writeBuffer(out);
+
+    beginObject(CATALOG);
+    buffer.setLength(0);
+    buffer.append("<< /Type /Catalog /Pages ").append(PAGES).append(" 0 R >>\nendobj\n");
+    writeBuffer(out);
+
+    long xref = out.count;
+    buffer.setLength(0);
+    buffer.append("xref\n0 ").append(objectCount + 1).append('\n');
+    buffer.append("0000000000 65535 f\r\n");
+    for (int i = 1; i <= objectCount; i++) {
+      if (buffer.length() > 4096) {
+        writeBuffer(out);
+        buffer.setLength(0);
+      }
+      String offset = Long.toString(offsets[i]);
+      buffer.append("0000000000", offset.length(), 10).append(offset).append(" 00000 n\r\n");
+    }
+    buffer.append("trailer\n<< /Size ").append(objectCount + 1)
+        .append(" /Root ").append(CATALOG).append(" 0 R >>\nstartxref\n")
+        .append(xref).append("\n%%EOF\n");
+    writeBuffer(out);
+    out.flush();
+    deflater.end();
+  }
+
+  private int beginObject() throws IOException {
+    return beginObject(++objectCount);
+  }
+
+  private int beginObject(int number) throws IOException {
+    if (number >= offsets.length) {
+      offsets = Arrays.copyOf(offsets, Math.max(number + 1, offsets.length * 2) );
+    }
+    offsets[number] = out.count;
+    buffer.setLength(0);
+    buffer.append(number).append(" 0 obj\n");
+    writeBuffer(out);
+    return number;
+  }
+
+  private void writeBuffer(OutputStream out) throws IOException {
+    int length = buffer.length();
+    if (bytes.length < length) {
+      bytes = new byte[Math.max(length, bytes.length * 2)];
+    }
+    for (int i = 0; i < length; i++) {
+      bytes[i] = (byte) buffer.charAt(i);
+    }
+    out.write(bytes, 0, length);
+  }
+
+  /**
+   * 小数点以下4桁までの数値を追加する。
+   */
+  private void appendNumber(double value) {
+    long scaled = Math.round(value * 10000);
+    if (scaled < 0) {
+      buffer.append('-');
+      scaled = -scaled;
+    }
+    buffer.append(scaled / 10000);
+    int fraction = (int) (scaled % 10000);
+    if (fraction != 0) {
+      int digits = 4;
+      while (fraction % 10 == 0) {
+        fraction /= 10;
+        digits--;
+      }
+      buffer.append('.');
+      String s = Integer.toString(fraction);
+      for (int i = s.length(); i < digits; i++) {
+        buffer.append('0');
+      }
+      buffer.append(s);
+    }
+  }
+
+  private static class CountingOutputStream extends FilterOutputStream {
+
+    private long count;
+
+    public CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+  }
+}
@@ -0,0 +1,496 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.d_project.qrcode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * PNGイメージ(2色)の出力.
+ * <br/>1ピクセル1ビットの走査線を受け取り、Deflater で圧縮しながら IDAT チャンクとして出力します。
+ * イメージ全体のバッファは確保しません。
+ * <br/>暗色が黒、明色が白の場合は1ビットのグレースケール、それ以外は2色のパレットで出力します。
+ * <br/>setParallel() を呼び出すと、イメージを横方向の帯に分けて並列に圧縮します。
+ * 各帯は独立した Deflater で圧縮して同期フラッシュで区切り、1つの IDAT ストリームに連結します。
+ * 出力は帯の行数だけで決まり、並列数やスレッドの実行順には依存しません。
+ * <br/>■使い方
+ * <pre>
+ * PNGWriter.write(qr.toBitMatrix(), 4, 16, out);
+ * </pre>
+ *
+ * @author Leonard Woo
+ */
+public class PNGWriter implements ScanlineWriter {
+
+  private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+  private static final int CHUNK_SIZE = 8192;
+  private static final int DICTIONARY_SIZE = 32 * 1024;
+
+  private final OutputStream out;
+  private final int width;
+  private final int height;
+  private final int darkColor;
+  private final int lightColor;
+  private final boolean grayscale;
+  private final boolean ownDeflater;
+  private Deflater deflater;
+  private final CRC32 crc;
+  private final byte[] chunk;
+  private final byte[] scanline;
+
+  private int chunkLength;
+  private int rowCount;
+  private boolean started;
+
+  private Executor executor;
+  private int parallelism;
+  private int bandRows;
+  private byte[] band;
+  private int bandLength;
+  private byte[] dictionary;
+  private ArrayDeque<CompletableFuture<byte[]>> bands;
+  private Adler32 adler;
+
+  /**
+   * コンストラクタ
+   *
+   * @param out 出力先
+   * @param width 幅
+   * @param height 高さ
+   * @param darkColor 暗色(RGB)
+   * @param lightColor 明色(RGB)
+   */
+  public PNGWriter(OutputStream out, int width, int height, int darkColor, int lightColor) {
+    this(out, width, height, darkColor, lightColor, null);
+  }
+
+  /**
+   * コンストラクタ
+   *
+   * @param out 出力先
+   * @param width 幅
+   * @param height 高さ
+   * @param darkColor 暗色(RGB)
+   * @param lightColor 明色(RGB)
+   * @param deflater 使用する Deflater。null の場合は必要になった時に作成し、finish() で解放します。
+   *     指定した場合は reset() して使用し、解放しません。並列で圧縮する場合は使用しません。
+   */
+  public PNGWriter(OutputStream out, int width, int height, int darkColor, int lightColor,
+      Deflater deflater) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("width: " + width + " /height: " + height);
+    }
+    this.out = out;
+    this.width = width;
+    this.height = height;
+    this.darkColor = darkColor & 0xffffff;
+    this.lightColor = lightColor & 0xffffff;
+    this.grayscale = this.darkColor == 0x000000 && this.lightColor == 0xffffff;
+    this.ownDeflater = deflater == null;
+    this.deflater = deflater;
+    if (deflater != null) {
+      deflater.reset();
+    }
+    this.crc = new CRC32();
+    this.chunk = new byte[8 + CHUNK_SIZE + 4];
+    this.scanline = new byte[1 + getStride()];
+  }
+
+  /**
+   * コンストラクタ
+   *
+   * @param channel 出力先
+   * @param width 幅
+   * @param height 高さ
+   * @param darkColor 暗色(RGB)
+   * @param lightColor 明色(RGB)
+   */
+  public PNGWriter(WritableByteChannel channel, int width, int height, int darkColor, int lightColor) {
+    this(Channels.newOutputStream(channel), width, height, darkColor, lightColor, null);
+  }
+
+  /**
+   * QRコードを黒白の PNG で出力する。
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param out 出力先
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void write(BitMatrix matrix, int cellSize, int margin, OutputStream out)
+      throws IOException {
+    write(matrix, cellSize, margin, 0x000000, 0xffffff, out);
+  }
+
+  /**
+   * QRコードを PNG で出力する。
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param darkColor 暗色(RGB)
+   * @param lightColor 明色(RGB)
+   * @param out 出力先
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void write(BitMatrix matrix, int cellSize, int margin, int darkColor, int lightColor,
+      OutputStream out) throws IOException {
+    int imageSize = matrix.getModuleCount() * cellSize + margin * 2;
+    PNGWriter writer = new PNGWriter(out, imageSize, imageSize, darkColor, lightColor);
+    writer.writeMatrix(matrix, cellSize, margin);
+    writer.finish();
+  }
+
+  /**
+   * 1行のバイト数を取得する。
+   *
+   * @return stride.
+   */
+  public int getStride() {
+    return (width + 7) / 8;
+  }
+
+  /**
+   * 帯ごとに並列で圧縮する。
+   * <br/>最初の走査線を書き込む前に呼び出してください。
+   * メモリ使用量は およそ (parallelism + 1) * bandRows * getStride() に比例します。
+   *
+   * @param executor 圧縮に使用する Executor
+   * @param parallelism 同時に圧縮する帯の最大数
+   * @param bandRows 帯の行数
+   */
+  public void setParallel(Executor executor, int parallelism, int bandRows) {
+    if (started) {
+      throw new IllegalStateException("already started");
+    }
+    if (parallelism <= 0 || bandRows <= 0) {
+      throw new IllegalArgumentException("parallelism: " + parallelism + " /bandRows: " + bandRows);
+    }
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.bandRows = bandRows;
+    this.bands = new ArrayDeque<>();
+    this.adler = new Adler32();
+  }
+
+  /**
+   * QRコードの走査線をすべて書き込む。
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @throws IOException if an I/O error occurs.
+   */
+  public void writeMatrix(BitMatrix matrix, int cellSize, int margin) throws IOException {
+    byte[] line = new byte[getStride()];
+    for (int i = 0; i < margin; i++) {
+      writeRow(line);
+    }
+    for (int row = 0; row < matrix.getModuleCount(); row++) {
+      matrix.expandRow(row, cellSize, margin, line);
+      for (int i = 0; i < cellSize; i++) {
+        writeRow(line);
+      }
+    }
+    Arrays.fill(line, (byte) 0);
+    for (int i = 0; i < margin; i++) {
+      writeRow(line);
+    }
+  }
+
+  /**
+   * 走査線を書き込む。
+   *
+   * @param line 1ピクセル1ビット(暗: 1, 上位ビットから)の走査線。getStride() バイト以上
+   * @throws IOException if an I/O error occurs.
+   */
+  @Override
+  public void writeRow(byte[] line) throws IOException {
+    if (rowCount >= height) {
+      throw new IllegalStateException("too many rows");
+    }
+    if (!started) {
+      writeHeader();
+    }
+
+    int stride = getStride();
+    scanline[0] = 0; // filter: none
+    if (grayscale) {
+      // グレースケールは 0 が黒
+      for (int i = 0; i < stride; i++) {
+        scanline[i + 1] = (byte) ~line[i];
+      }
+    } else {
+      System.arraycopy(line, 0, scanline, 1, stride);
+    }
+    // 幅が8の倍数でない場合の余りのビット
+    int padding = stride * 8 - width;
+    if (padding > 0) {
+      scanline[stride] &= (byte) (0xff << padding);
+    }
+
+    rowCount++;
+
+    if (executor != null) {
+      writeBandRow();
+      return;
+    }
+
+    if (deflater == null) {
+      deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    }
+    try {
+      deflater.setInput(scanline);
+      while (!deflater.needsInput() ) {
+        deflate();
+      }
+    } catch (IOException | RuntimeException e) {
+      endDeflater();
+      throw e;
+    }
+  }
+
+  private void writeBandRow() throws IOException {
+    if (band == null) {
+      band = new byte[bandRows * scanline.length];
+      bandLength = 0;
+    }
+    System.arraycopy(scanline, 0, band, bandLength, scanline.length);
+    bandLength += scanline.length;
+    adler.update(scanline);
+
+    boolean last = rowCount == height;
+    if (bandLength < band.length && !last) {
+      return;
+    }
+
+    byte[] data = band;
+    int length = bandLength;
+    byte[] preset = dictionary;
+    bands.add(CompletableFuture.supplyAsync(() -> compressBand(data, length, preset, last), executor) );
+
+    // 次の帯の辞書
+    int dictionaryLength = Math.min(DICTIONARY_SIZE, length);
+    dictionary = Arrays.copyOfRange(data, length - dictionaryLength, length);
+    band = null;
+
+    while (bands.size() > parallelism) {
+      writeIDAT(join(bands.poll() ) );
+    }
+  }
+
+  /**
+   * 帯を圧縮する。最後の帯以外は同期フラッシュで終わる。
+   */
+  private static byte[] compressBand(byte[] data, int length, byte[] dictionary, boolean last) {
+    Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+    try {
+      if (dictionary != null) {
+        deflater.setDictionary(dictionary);
+      }
+      deflater.setInput(data, 0, length);
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream(length / 4 + 64);
+      byte[] buffer = new byte[CHUNK_SIZE];
+      if (last) {
+        deflater.finish();
+        while (!deflater.finished() ) {
+          int n = deflater.deflate(buffer);
+          out.write(buffer, 0, n);
+        }
+      } else {
+        int n;
+        do {
+          n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+          out.write(buffer, 0, n);
+        } while (n == buffer.length);
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * 帯の圧縮の完了を待つ。圧縮中の例外は CompletionException から取り出して送出する。
+   */
+  private byte[] join(CompletableFuture<byte[]> future) throws IOException {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      bands.clear();
+      if (e.getCause() instanceof UncheckedIOException cause) {
+        throw cause.getCause();
+      }
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  private void writeIDAT(byte[] data) throws IOException {
+    int offset = 0;
+    while (offset < data.length) {
+      int n = Math.min(CHUNK_SIZE - chunkLength, data.length - offset);
+      System.arraycopy(data, offset, chunk, 8 + chunkLength, n);
+      chunkLength += n;
+      offset += n;
+      if (chunkLength == CHUNK_SIZE) {
+        writeChunk("IDAT", chunkLength);
+      }
+    }
+  }
+
+  /**
+   * 残りのデータ及び終端を出力する。
+   *
+   * @throws IOException if an I/O error occurs.
+   */
+  @Override
+  public void finish() throws IOException {
+    if (rowCount != height) {
+      throw new IllegalStateException("rows: " + rowCount + " != " + height);
+    }
+    if (executor == null && deflater == null) {
+      // 書き込みの失敗で解放済み
+      throw new IllegalStateException("deflater ended");
+    }
+    try {
+      if (executor != null) {
+        while (!bands.isEmpty() ) {
+          writeIDAT(join(bands.poll() ) );
+        }
+        int value = (int) adler.getValue();
+        writeIDAT(new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value});
+      } else {
+        deflater.finish();
+        while (!deflater.finished() ) {
+          deflate();
+        }
+      }
+      if (chunkLength > 0) {
+        writeChunk("IDAT", chunkLength);
+      }
+      writeChunk("IEND", 0);
+      out.flush();
+    } finally {
+      endDeflater();
+    }
+  }
+
+  /**
+   * 作成した Deflater を解放する。
+   */
+  private void endDeflater() {
+    if (ownDeflater && deflater != null) {
+      deflater.end();
+      deflater = null;
+    }
+  }
+
+  private void writeHeader() throws IOException {
+    started = true;
+    out.write(SIGNATURE);
+
+    putInt(0, width);
+    putInt(4, height);
+    chunk[8 + 8] = 1; // bit depth
+    chunk[8 + 9] = (byte) (grayscale ? 0 : 3); // color type
+    chunk[8 + 10] = 0; // compression
+    chunk[8 + 11] = 0; // filter
+    chunk[8 + 12] = 0; // interlace
+    writeChunk("IHDR", 13);
+
+    if (!grayscale) {
+      // 0: 明色, 1: 暗色
+      putColor(0, lightColor);
+      putColor(3, darkColor);
+      writeChunk("PLTE", 6);
+    }
+
+    if (executor != null) {
+      // zlib ヘッダ (deflate, 32K window, 最大圧縮)
+      writeIDAT(new byte[]{0x78, (byte) 0xda});
+    }
+  }
+
+  private void deflate() throws IOException {
+    int n = deflater.deflate(chunk, 8 + chunkLength, CHUNK_SIZE - chunkLength);
+    chunkLength += n;
+    if (chunkLength == CHUNK_SIZE) {
+      writeChunk("IDAT", chunkLength);
+    }
+  }
+
+  private void putInt(int offset, int value) {
+    chunk[8 + offset] = (byte) (value >>> 24);
+    chunk[8 + offset + 1] = (byte) (value >>> 16);
+    chunk[8 + offset + 2] = (byte) (value >>> 8);
+    chunk[8 + offset + 3] = (byte) value;
+  }
+
+  private void putColor(int offset, int color) {
+    chunk[8 + offset] = (byte) (color >>> 16);
+    chunk[8 + offset + 1] = (byte) (color >>> 8);
+    chunk[8 + offset + 2] = (byte) color;
+  }
+
+  /**
+   * chunk[8] から length バイトのデータをチャンクとして出力する。
+   */
+  private void writeChunk(String type, int length) throws IOException {
+    byte[] typeBytes = type.getBytes(StandardCharsets.ISO_8859_1);
+    chunk[0] = (byte) (length >>> 24);
+    chunk[1] = (byte) (length >>> 16);
+    chunk[2] = (byte) (length >>> 8);
+    chunk[3] = (byte) length;
+    System.arraycopy(typeBytes, 0, chunk, 4, 4);
+
+    crc.reset();
+    crc.update(chunk, 4, 4 + length);
+    int value = (int) crc.getValue();
+    chunk[8 + length] = (byte) (value >>> 24);
+    chunk[8 + length + 1] = (byte) (value >>> 16);
+    chunk[8 + length + 2] = (byte) (value >>> 8);
+    chunk[8 + length + 3] = (byte) value;
+
+    out.write(chunk, 0, 8 + length + 4);
+    chunkLength = 0;
+  }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.d_project.qrcode;
+
+/**
+ * データの容量の見積り.
+ * <br/>データが収まる最小の型番、ビット長及び残りの容量を、
+ * 作成済みのデータコード数の表から計算します。
+ * BitBuffer の作成や誤り訂正コードの計算は行いません。
+ * <br/>■使い方
+ * <pre>
+ * QRCapacity capacity = QRCapacity.plan(data, ErrorCorrectionLevel.M, 10);
+ * if (!capacity.fits() ) {
+ *   // 容量超過
+ * }
+ * QRCode qr = capacity.boostErrorCorrectionLevel().make(data);
+ * </pre>
+ *
+ * @author Leonard Woo
+ */
+public final class QRCapacity {
+
+  /** 復元能力の低い順の誤り訂正レベル */
+  private static final int[] LEVELS = {
+      ErrorCorrectionLevel.L, ErrorCorrectionLevel.M, ErrorCorrectionLevel.Q, ErrorCorrectionLevel.H
+  };
+
+  private final int typeNumber;
+  private final int errorCorrectionLevel;
+  private final int lengthInBits;
+  private final int capacityInBits;
+  private final int[] modes;
+
+  private QRCapacity(int typeNumber, int errorCorrectionLevel, int lengthInBits,
+      int capacityInBits, int[] modes) {
+    this.typeNumber = typeNumber;
+    this.errorCorrectionLevel = errorCorrectionLevel;
+    this.lengthInBits = lengthInBits;
+    this.capacityInBits = capacityInBits;
+    this.modes = modes;
+  }
+
+  /**
+   * データの容量を見積もる。
+   * <br/>モードはデータから選択します。
+   *
+   * @param data データ
+   * @param errorCorrectionLevel 誤り訂正レベル
+   * @param maxTypeNumber 最大の型番 (1 - 40)
+   * @return 見積り
+   */
+  public static QRCapacity plan(String data, int errorCorrectionLevel, int maxTypeNumber) {
+    return plan(data, QRUtil.getMode(data), errorCorrectionLevel, maxTypeNumber);
+  }
+
+  /**
+   * データの容量を見積もる。
+   *
+   * @param data データ
+   * @param mode モード
+   * @param errorCorrectionLevel 誤り訂正レベル
+   * @param maxTypeNumber 最大の型番 (1 - 40)
+   * @return 見積り
+   * @see Mode
+   */
+  public static QRCapacity plan(String data, int mode, int errorCorrectionLevel,
+      int maxTypeNumber) {
+    return plan(new String[] {data}, new int[] {mode}, errorCorrectionLevel, maxTypeNumber);
+  }
+
+  /**
+   * 複数のセグメントからなるデータの容量を見積もる。
+   *
+   * @param data セグメントごとのデータ
+   * @param modes セグメントごとのモード (null の場合、データから選択)
+   * @param errorCorrectionLevel 誤り訂正レベル
+   * @param maxTypeNumber 最大の型番 (1 - 40)
+   * @return 見積り
+   * @see Mode
+   */
+  public static QRCapacity plan(String[] data, int[] modes, int errorCorrectionLevel,
+      int maxTypeNumber) {
+    if (modes != null && modes.length != data.length) {
+      throw new IllegalArgumentException("modes: " + modes.length + " != " + data.length);
+    }
+    // 型番及び誤り訂正レベルを検査する
+    RSBlock.getTotalDataCount(maxTypeNumber, errorCorrectionLevel);
+
+    QRData[] segments = new QRData[data.length];
+    int[] chosen = new int[data.length];
+    int dataBits = 0;
+    for (int i = 0; i < data.length; i++) {
+      chosen[i] = modes != null ? modes[i] : QRUtil.getMode(data[i]);
+      segments[i] = QRUtil.createQRData(data[i], chosen[i]);
+      dataBits += 4 + QRUtil.getDataLengthInBits(chosen[i], segments[i].getLength() );
+    }
+
+    int lengthInBits = 0;
+    int capacityInBits = 0;
+    for (int type = 1; type <= maxTypeNumber; type++) {
+      // 文字数指示子のビット長は型番 1, 10, 27 で変わる
+      if (type == 1 || type == 10 || type == 27) {
+        lengthInBits = dataBits;
+        for (QRData segment : segments) {
+          lengthInBits += segment.getLengthInBits(type);
+        }
+      }
+      capacityInBits = RSBlock.getTotalDataCount(type, errorCorrectionLevel) * 8;
+      if (lengthInBits <= capacityInBits) {
+        return new QRCapacity(type, errorCorrectionLevel, lengthInBits, capacityInBits, chosen);
+      }
+    }
+    return new QRCapacity(maxTypeNumber, errorCorrectionLevel, lengthInBits, capacityInBits,
+        chosen);
+  }
+
+  /**
+   * データが最大の型番までに収まるかどうかを判定する。
+   *
+   * @return 収まる場合 true
+   */
+  public boolean fits() {
+    return lengthInBits <= capacityInBits;
+  }
+
+  /**
+   * 型番を取得する。
+   * <br/>収まらない場合は最大の型番です。
+   *
+   * @return 型番
+   */
+  public int getTypeNumber() {
+    return typeNumber;
+  }
+
+  /**
+   * 誤り訂正レベルを取得する。
+   *
+   * @return 誤り訂正レベル
+   */
+  public int getErrorCorrectionLevel() {
+    return errorCorrectionLevel;
+  }
+
+  /**
+   * データのビット長を取得する。
+   * <br/>モード指示子及び文字数指示子を含み、終端コード及び埋め草を含みません。
+   *
+   * @return ビット長
+   */
+  public int getLengthInBits() {
+    return lengthInBits;
+  }
+
+  /**
+   * 型番及び誤り訂正レベルのデータ容量を取得する。
+   *
+   * @return データ容量(ビット)
+   */
+  public int getCapacityInBits() {
+    return capacityInBits;
+  }
+
+  /**
+   * 残りの容量を取得する。
+   * <br/>収まらない場合は負の値(超過したビット数)です。
+   *
+   * @return 残りの容量(ビット)
+   */
+  public int getRemainingBits() {
+    return capacityInBits - lengthInBits;
+  }
+
+  /**
+   * セグメントごとのモードを取得する。
+   *
+   * @return モード
+   * @see Mode
+   */
+  public int[] getModes() {
+    return modes.clone();
+  }
+
+  /**
+   * 型番を変えずに誤り訂正レベルを引き上げる。
+   * <br/>同じ型番のデータ容量に収まる最も高い誤り訂正レベルの見積りを返します。
+   * データのビット長は誤り訂正レベルに依存しないため、表の参照だけで判定します。
+   *
+   * @return 引き上げた見積り (引き上げられない場合はこのインスタンス)
+   */
+  public QRCapacity boostErrorCorrectionLevel() {
+    if (!fits() ) {
+      return this;
+    }
+    for (int i = LEVELS.length - 1; LEVELS[i] != errorCorrectionLevel; i--) {
+      int capacity = RSBlock.getTotalDataCount(typeNumber, LEVELS[i]) * 8;
+      if (lengthInBits <= capacity) {
+        return new QRCapacity(typeNumber, LEVELS[i], lengthInBits, capacity, modes);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * 見積もった型番及びモードで QRCode を作成する。
+   *
+   * @param data セグメントごとのデータ (見積り時と同じもの)
+   * @return 作成済みの QRCode
+   * @throws IllegalStateException データが収まらない場合
+   */
+  public QRCode make(String... data) {
+    QRCode qr = newQRCode(data);
+    qr.make();
+    return qr;
+  }
+
+  /**
+   * 見積もった型番及びモードの QRCode を make() を呼び出さずに作成する。
+   */
+  QRCode newQRCode(String... data) {
+    if (!fits() ) {
+      throw new IllegalStateException("code length overflow. ("
+          + lengthInBits + ">" + capacityInBits + ")");
+    }
+    if (data.length != modes.length) {
+      throw new IllegalArgumentException("data: " + data.length + " != " + modes.length);
+    }
+    QRCode qr = new QRCode();
+    qr.setTypeNumber(typeNumber);
+    qr.setErrorCorrectionLevel(errorCorrectionLevel);
+    for (int i = 0; i < data.length; i++) {
+      qr.addData(data[i], modes[i]);
+    }
+    return qr;
+  }
+
+  /**
+   * データが収まる最小の型番を見積もり、必要であれば誤り訂正レベルを引き上げる。
+   *
+   * @throws IllegalArgumentException データが収まらない場合
+   */
+  static QRCapacity planMinimum(String data, int errorCorrectionLevel, int maxTypeNumber,
+      boolean boost) {
+    QRCapacity capacity = plan(data, errorCorrectionLevel, maxTypeNumber);
+    if (!capacity.fits() ) {
+      throw new IllegalArgumentException("code length overflow. ("
+        + capacity.lengthInBits
+        + ">"
+        + capacity.capacityInBits
+        + ")");
+    }
+    return boost ? capacity.boostErrorCorrectionLevel() : capacity;
+  }
+}
@@ -22,10 +22,9 @@
 
 package com.d_project.qrcode;
 
-import java.awt.image.BufferedImage;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * QRコード.
@@ -44,10 +43,14 @@ public class QRCode {
   private static final int PAD1 = 0x11;
 
   private static String _8BitByteEncoding = QRUtil.getJISEncoding();
+  /** 型番ごとの機能パターン (形式情報を除く)。index = typeNumber * 2 + (test ? 1 : 0) */
+  private static final AtomicReferenceArray<Boolean[][]> FUNCTION_PATTERNS =
+      new AtomicReferenceArray<>(41 * 2);
   private int typeNumber;
   private Boolean[][] modules;
   private int moduleCount;
   private int errorCorrectionLevel;
+  private int maskPattern;
   private final List<QRData> qrDataList;
 
   /**
@@ -72,6 +75,16 @@ public class QRCode {
       data.write(buffer);
     }
 
+    padData(buffer, rsBlocks);
+
+    return createBytes(buffer, rsBlocks);
+  }
+
+  /**
+   * 終端コード及び埋め草を追加する。
+   */
+  static void padData(BitBuffer buffer, RSBlock[] rsBlocks) {
+
     // 最大データ数を計算
     int totalDataCount = 0;
     for (RSBlock rsBlock : rsBlocks) {
@@ -108,14 +121,10 @@ public class QRCode {
       }
       buffer.put(PAD1, 8);
     }
-
-    return createBytes(buffer, rsBlocks);
   }
 
   private static byte[] createBytes(BitBuffer buffer, RSBlock[] rsBlocks) {
     int offset = 0;
-    int maxDcCount = 0;
-    int maxEcCount = 0;
 
     int[][] dcdata = new int[rsBlocks.length][];
     int[][] ecdata = new int[rsBlocks.length][];
@@ -124,28 +133,44 @@ public class QRCode {
       int dcCount = rsBlocks[r].getDataCount();
       int ecCount = rsBlocks[r].getTotalCount() - dcCount;
 
-      maxDcCount = Math.max(maxDcCount, dcCount);
-      maxEcCount = Math.max(maxEcCount, ecCount);
-
       dcdata[r] = new int[dcCount];
       for (int i = 0; i < dcdata[r].length; i++) {
         dcdata[r][i] = 0xff & buffer.getBuffer()[i + offset];
       }
       offset += dcCount;
 
-      Polynomial rsPoly = QRUtil.getErrorCorrectPolynomial(ecCount);
-      Polynomial rawPoly = new Polynomial(dcdata[r], rsPoly.getLength() - 1);
-      Polynomial modPoly = rawPoly.mod(rsPoly);
-      ecdata[r] = new int[rsPoly.getLength() - 1];
-      for (int i = 0; i < ecdata[r].length; i++) {
-        int modIndex = i + modPoly.getLength() - ecdata[r].length;
-        ecdata[r][i] = (modIndex >= 0)? modPoly.get(modIndex) : 0;
-      }
+      ecdata[r] = createECData(dcdata[r], ecCount);
+    }
+
+    return interleave(rsBlocks, dcdata, ecdata);
+  }
+
+  /**
+   * ブロックの誤り訂正コードを計算する。
+   */
+  static int[] createECData(int[] dcdata, int ecCount) {
+    Polynomial rsPoly = QRUtil.getErrorCorrectPolynomial(ecCount);
+    Polynomial rawPoly = new Polynomial(dcdata, rsPoly.getLength() - 1);
+    Polynomial modPoly = rawPoly.mod(rsPoly);
+    int[] ecdata = new int[rsPoly.getLength() - 1];
+    for (int i = 0; i < ecdata.length; i++) {
+      int modIndex = i + modPoly.getLength() - ecdata.length;
+      ecdata[i] = (modIndex >= 0)? modPoly.get(modIndex) : 0;
     }
+    return ecdata;
+  }
 
+  /**
+   * ブロックのデータコード及び誤り訂正コードを並べる。
+   */
+  static byte[] interleave(RSBlock[] rsBlocks, int[][] dcdata, int[][] ecdata) {
+    int maxDcCount = 0;
+    int maxEcCount = 0;
     int totalCodeCount = 0;
-    for (RSBlock rsBlock : rsBlocks) {
-      totalCodeCount += rsBlock.getTotalCount();
+    for (int r = 0; r < rsBlocks.length; r++) {
+      maxDcCount = Math.max(maxDcCount, dcdata[r].length);
+      maxEcCount = Math.max(maxEcCount, ecdata[r].length);
+      totalCodeCount += rsBlocks[r].getTotalCount();
     }
 
     byte[] data = new byte[totalCodeCount];
@@ -199,6 +224,37 @@ public class QRCode {
     return qr;
   }
 
+  /**
+   * 最小の型番となる QRCode を作成する。
+   * <br/>boost が true の場合、型番を変えずに収まる範囲で誤り訂正レベルを引き上げます。
+   * <br/>型番は getMinimumQRCode(String, int) と同じく 10 までです。
+   *
+   * @param data データ
+   * @param errorCorrectionLevel 誤り訂正レベル(下限)
+   * @param boost 誤り訂正レベルを引き上げる場合 true
+   * @return QRCode instance.
+   * @see #getMinimumQRCode(String, int, int, boolean)
+   */
+  public static QRCode getMinimumQRCode(String data, int errorCorrectionLevel, boolean boost) {
+    return getMinimumQRCode(data, errorCorrectionLevel, 10, boost);
+  }
+
+  /**
+   * 最大の型番までで最小の型番となる QRCode を作成する。
+   * <br/>boost が true の場合、型番を変えずに収まる範囲で誤り訂正レベルを引き上げます。
+   *
+   * @param data データ
+   * @param errorCorrectionLevel 誤り訂正レベル(下限)
+   * @param maxTypeNumber 最大の型番 (1 - 40)
+   * @param boost 誤り訂正レベルを引き上げる場合 true
+   * @return QRCode instance.
+   * @see QRCapacity#boostErrorCorrectionLevel()
+   */
+  public static QRCode getMinimumQRCode(String data, int errorCorrectionLevel, int maxTypeNumber,
+      boolean boost) {
+    return QRCapacity.planMinimum(data, errorCorrectionLevel, maxTypeNumber, boost).make(data);
+  }
+
   /**
    * Get 8Bit encoding
    *
@@ -272,17 +328,7 @@ public class QRCode {
    * @see Mode
    */
   public void addData(String data, int mode) {
-    if (Mode.MODE_NUMBER == mode) {
-      addData(new QRNumber(data));
-    } else if (Mode.MODE_ALPHA_NUM == mode) {
-      addData(new QRAlphaNum(data));
-    } else if (Mode.MODE_8BIT_BYTE == mode) {
-      addData(new QR8BitByte(data));
-    } else if (Mode.MODE_KANJI == mode) {
-      addData(new QRKanji(data));
-    } else {
-      throw new IllegalArgumentException("mode:" + mode);
-    }
+    addData(QRUtil.createQRData(data, mode) );
   }
 
   /**
@@ -349,14 +395,65 @@ public class QRCode {
    * QRコードを作成する。
    */
   public void make() {
-    make(false, getBestMaskPattern());
+    QRData[] dataArray = qrDataList.toArray(QRData[]::new);
+    make(createData(typeNumber, errorCorrectionLevel, dataArray) );
+  }
+
+  /**
+   * 作成済みのコード(データコード及び誤り訂正コード)からQRコードを作成する。
+   */
+  void make(byte[] data) {
+    maskPattern = getBestMaskPattern(data);
+    make(false, maskPattern, data);
   }
 
-  private int getBestMaskPattern() {
+  /**
+   * 作成済みのコードから、マスクパターンを指定してQRコードを作成する。
+   */
+  void make(byte[] data, int maskPattern) {
+    this.maskPattern = maskPattern;
+    make(false, maskPattern, data);
+  }
+
+  /**
+   * マスクパターンを取得する。
+   *
+   * @return make() で選択されたマスクパターン
+   */
+  public int getMaskPattern() {
+    return maskPattern;
+  }
+
+  /**
+   * モジュールをビット単位に詰めた BitMatrix を取得する。
+   *
+   * @return BitMatrix instance.
+   * @throws IllegalStateException if make() is not called.
+   */
+  public BitMatrix toBitMatrix() {
+    if (modules == null) {
+      throw new IllegalStateException("not made");
+    }
+
+    int rowWords = BitMatrix.getRowWords(moduleCount);
+    long[] bits = new long[moduleCount * rowWords];
+
+    for (int row = 0; row < moduleCount; row++) {
+      for (int col = 0; col < moduleCount; col++) {
+        if (isDark(row, col) ) {
+          bits[row * rowWords + (col >>> 6)] |= Long.MIN_VALUE >>> (col & 63);
+        }
+      }
+    }
+
+    return new BitMatrix(typeNumber, errorCorrectionLevel, maskPattern, bits);
+  }
+
+  private int getBestMaskPattern(byte[] data) {
     int minLostPoint = 0;
     int pattern = 0;
     for (int i = 0; i < 8; i++) {
-      make(true, i);
+      make(true, i, data);
       int lostPoint = QRUtil.getLostPoint(this);
 
       if (i == 0 || minLostPoint >  lostPoint) {
@@ -371,29 +468,54 @@ public class QRCode {
   /**
    * QRコードを作成する。
    */
-  private void make(boolean test, int maskPattern) {
-    // モジュール初期化
-    moduleCount = typeNumber * 4 + 17;
-    modules = new Boolean[moduleCount][moduleCount];
-
-    // 位置検出パターン及び分離パターンを設定
-    setupPositionProbePattern(0, 0);
-    setupPositionProbePattern(moduleCount - 7, 0);
-    setupPositionProbePattern(0, moduleCount - 7);
-
-    setupPositionAdjustPattern();
-    setupTimingPattern();
+  private void make(boolean test, int maskPattern, byte[] data) {
+    // モジュール初期化 (作成済みの機能パターンを複製)
+    Boolean[][] functionPatterns = getFunctionPatterns(typeNumber, test);
+    moduleCount = functionPatterns.length;
+    modules = new Boolean[moduleCount][];
+    for (int row = 0; row < moduleCount; row++) {
+      modules[row] = functionPatterns[row].clone();
+    }
 
     setupTypeInfo(test, maskPattern);
 
-    if (typeNumber >= 7) {
-      setupTypeNumber(test);
-    }
+    mapData(data, maskPattern);
+  }
 
-    QRData[] dataArray = qrDataList.toArray(QRData[]::new);
-    byte[] data = createData(typeNumber, errorCorrectionLevel, dataArray);
+  /**
+   * 型番に対する機能パターンを取得する。
+   * <br/>マスクパターンに依存しない位置検出パターン、位置合わせパターン、タイミングパターン及び型番を
+   * 型番ごとに一度だけ作成します。返される配列は変更しないでください。
+   */
+  private static Boolean[][] getFunctionPatterns(int typeNumber, boolean test) {
+    if (typeNumber < 1 || 40 < typeNumber) {
+      throw new IllegalArgumentException("type: " + typeNumber);
+    }
+    int index = typeNumber * 2 + (test ? 1 : 0);
+    Boolean[][] patterns = FUNCTION_PATTERNS.get(index);
+    if (patterns == null) {
+      QRCode qr = new QRCode();
+      qr.typeNumber = typeNumber;
+      qr.moduleCount = typeNumber * 4 + 17;
+      qr.modules = new Boolean[qr.moduleCount][qr.moduleCount];
+
+      // 位置検出パターン及び分離パターンを設定
+      qr.setupPositionProbePattern(0, 0);
+      qr.setupPositionProbePattern(qr.moduleCount - 7, 0);
+      qr.setupPositionProbePattern(0, qr.moduleCount - 7);
+
+      qr.setupPositionAdjustPattern();
+      qr.setupTimingPattern();
+
+      if (typeNumber >= 7) {
+        qr.setupTypeNumber(test);
+      }
 
-    mapData(data, maskPattern);
+      // 同時に作成された場合もどちらも同じ内容
+      patterns = qr.modules;
+      FUNCTION_PATTERNS.set(index, patterns);
+    }
+    return patterns;
   }
 
   private void mapData(byte[] data, int maskPattern) {
@@ -565,17 +687,16 @@ public class QRCode {
   }
 
   /**
-   * イメージを取得する。
+   * GIFイメージを取得する。
    *
    * @param cellSize セルのサイズ(pixel)
    * @param margin 余白(pixel)
-   * @return Image instance.
-   * @throws IOException if image write has exception.
+   * @return GIFImage instance.
    */
-  public BufferedImage createImage(int cellSize, int margin) throws IOException {
+  public GIFImage createGIFImage(int cellSize, int margin) {
     int imageSize = getModuleCount() * cellSize + margin * 2;
 
-    BufferedImage image = new BufferedImage(imageSize, imageSize, BufferedImage.TYPE_INT_RGB);
+    GIFImage image = new GIFImage(imageSize, imageSize);
 
     for (int y = 0; y < imageSize; y++) {
       for (int x = 0; x < imageSize; x++) {
@@ -585,14 +706,10 @@ public class QRCode {
           int col = (x - margin) / cellSize;
           int row = (y - margin) / cellSize;
 
-          if (isDark(row, col) ) {
-              image.setRGB(x, y, 0x000000);
-          } else {
-              image.setRGB(x, y, 0xffffff);
-          }
+          image.setPixel(x, y, isDark(row, col)? 0 : 1);
 
         } else {
-          image.setRGB(x, y, 0xffffff);
+          image.setPixel(x, y, 1);
         }
       }
     }
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.d_project.qrcode;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 作成済みQRコードのキャッシュ.
+ * <br/>データ、誤り訂正レベル、型番が同じ QRCode の BitMatrix を再利用し、make() を省略します。
+ * <br/>エントリはバイト数で重み付けされ、最大重量を超えると分割LRU(probation/protected)で追い出されます。
+ * <br/>キャッシュは最大 16 のセグメントに分割され、最大重量はセグメントに均等に配分されます。
+ * 型番 40 のエントリ(約 4.3KB)が収まるよう、最大重量が小さい場合はセグメント数を減らします
+ * (1 セグメントあたり 8KB 以上)。セグメントの重量を超えるエントリはキャッシュされません。
+ * <br/>■使い方
+ * <pre>
+ * QRCodeCache cache = new QRCodeCache(4 * 1024 * 1024);
+ * QRCode qr = new QRCode();
+ * qr.addData("https://example.com/");
+ * BitMatrix matrix = cache.make(qr);
+ * </pre>
+ *
+ * @author Leonard Woo
+ */
+public class QRCodeCache {
+
+  private static final int MAX_SEGMENT_COUNT = 16;
+  private static final int MIN_SEGMENT_WEIGHT = 8 * 1024;
+  private static final int ENTRY_OVERHEAD = 64;
+
+  private final Segment[] segments;
+  private final int segmentMask;
+  private final LongAdder hitCount;
+  private final LongAdder missCount;
+  private final LongAdder evictionCount;
+
+  /**
+   * コンストラクタ
+   *
+   * @param maximumWeight 最大重量(byte)
+   */
+  public QRCodeCache(long maximumWeight) {
+    if (maximumWeight <= 0) {
+      throw new IllegalArgumentException("maximumWeight: " + maximumWeight);
+    }
+    // 1 セグメントあたり MIN_SEGMENT_WEIGHT 以上となる 2 のべき乗のセグメント数
+    int segmentCount = MAX_SEGMENT_COUNT;
+    while (segmentCount > 1 && maximumWeight / segmentCount < MIN_SEGMENT_WEIGHT) {
+      segmentCount >>>= 1;
+    }
+    this.segments = new Segment[segmentCount];
+    this.segmentMask = segmentCount - 1;
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = new Segment(maximumWeight / segmentCount);
+    }
+    this.hitCount = new LongAdder();
+    this.missCount = new LongAdder();
+    this.evictionCount = new LongAdder();
+  }
+
+  /**
+   * キャッシュから BitMatrix を取得する。
+   * <br/>キャッシュにない場合は qrCode.make() を呼び出して作成し、キャッシュに追加します。
+   * キャッシュにある場合 qrCode.make() は呼び出されません。
+   *
+   * @param qrCode 諸パラメータを設定した QRCode
+   * @return BitMatrix instance.
+   */
+  public BitMatrix make(QRCode qrCode) {
+    SymbolKey key = SymbolKey.of(qrCode);
+    Segment segment = segmentFor(key);
+
+    BitMatrix matrix = segment.get(key);
+    if (matrix != null) {
+      hitCount.increment();
+      return matrix;
+    }
+
+    missCount.increment();
+    qrCode.make();
+    matrix = qrCode.toBitMatrix();
+    evictionCount.add(segment.put(key, matrix) );
+    return matrix;
+  }
+
+  /**
+   * 最小の型番のQRコードの BitMatrix をキャッシュから取得する。
+   * <br/>型番及び誤り訂正レベルは作成済みの表から決定するため、キャッシュにある場合 make() は呼び出されません。
+   * boost が true の場合、型番を変えずに収まる範囲で誤り訂正レベルを引き上げます。
+   *
+   * @param data データ
+   * @param errorCorrectionLevel 誤り訂正レベル(下限)
+   * @param maxTypeNumber 最大の型番 (1 - 40)
+   * @param boost 誤り訂正レベルを引き上げる場合 true
+   * @return BitMatrix instance.
+   * @see QRCode#getMinimumQRCode(String, int, int, boolean)
+   */
+  public BitMatrix make(String data, int errorCorrectionLevel, int maxTypeNumber, boolean boost) {
+    return make(QRCapacity.planMinimum(data, errorCorrectionLevel, maxTypeNumber, boost)
+        .newQRCode(data) );
+  }
+
+  /**
+   * キャッシュをクリアする。
+   */
+  public void clear() {
+    for (Segment segment : segments) {
+      segment.clear();
+    }
+  }
+
+  /**
+   * エントリ数を取得する。
+   *
+   * @return entry count.
+   */
+  public long size() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  /**
+   * 重量の合計を取得する。
+   *
+   * @return weight(byte).
+   */
+  public long weight() {
+    long weight = 0;
+    for (Segment segment : segments) {
+      weight += segment.weight();
+    }
+    return weight;
+  }
+
+  /**
+   * ヒット数を取得する。
+   *
+   * @return hit count.
+   */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /**
+   * ミス数を取得する。
+   *
+   * @return miss count.
+   */
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * 追い出し数を取得する。
+   *
+   * @return eviction count.
+   */
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  private Segment segmentFor(SymbolKey key) {
+    int hash = key.hashCode();
+    hash ^= (hash >>> 16);
+    return segments[hash & segmentMask];
+  }
+
+  private static int weigh(SymbolKey key, BitMatrix matrix) {
+    return key.getLength() + matrix.getSizeInBytes() + ENTRY_OVERHEAD;
+  }
+
+  /**
+   * 分割LRU.
+   * <br/>新しいエントリは probation に入り、再度参照されると protected へ昇格します。
+   */
+  private static class Segment {
+
+    private final long maximumWeight;
+    private final long protectedMaximumWeight;
+    private final LinkedHashMap<SymbolKey, BitMatrix> probation;
+    private final LinkedHashMap<SymbolKey, BitMatrix> protect;
+    private long probationWeight;
+    private long protectedWeight;
+
+    public Segment(long maximumWeight) {
+      this.maximumWeight = maximumWeight;
+      this.protectedMaximumWeight = maximumWeight * 4 / 5;
+      this.probation = new LinkedHashMap<>(16, 0.75f, true);
+      this.protect = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public synchronized BitMatrix get(SymbolKey key) {
+      BitMatrix matrix = protect.get(key);
+      if (matrix != null) {
+        return matrix;
+      }
+
+      matrix = probation.remove(key);
+      if (matrix == null) {
+        return null;
+      }
+
+      // protected へ昇格
+      int weight = weigh(key, matrix);
+      probationWeight -= weight;
+      protect.put(key, matrix);
+      protectedWeight += weight;
+
+      // protected の超過分を probation へ降格
+      Iterator<Map.Entry<SymbolKey, BitMatrix>> it = protect.entrySet().iterator();
+      while (protectedWeight > protectedMaximumWeight && it.hasNext() ) {
+        Map.Entry<SymbolKey, BitMatrix> eldest = it.next();
+        if (eldest.getKey().equals(key) ) {
+          break;
+        }
+        it.remove();
+        int eldestWeight = weigh(eldest.getKey(), eldest.getValue() );
+        protectedWeight -= eldestWeight;
+        probation.put(eldest.getKey(), eldest.getValue() );
+        probationWeight += eldestWeight;
+      }
+
+      return matrix;
+    }
+
+    public synchronized int put(SymbolKey key, BitMatrix matrix) {
+      int weight = weigh(key, matrix);
+      if (weight > maximumWeight || protect.containsKey(key) ) {
+        return 0;
+      }
+
+      BitMatrix old = probation.put(key, matrix);
+      if (old != null) {
+        probationWeight -= weigh(key, old);
+      }
+      probationWeight += weight;
+
+      int evicted = 0;
+      while (probationWeight + protectedWeight > maximumWeight) {
+        // 追加したエントリ自身よりも protected を先に追い出す
+        boolean onlyAdded = probation.size() == 1 && !protect.isEmpty();
+        LinkedHashMap<SymbolKey, BitMatrix> victims =
+            (probation.isEmpty() || onlyAdded) ? protect : probation;
+        Map.Entry<SymbolKey, BitMatrix> eldest = victims.entrySet().iterator().next();
+        victims.remove(eldest.getKey() );
+        int eldestWeight = weigh(eldest.getKey(), eldest.getValue() );
+        if (victims == probation) {
+          probationWeight -= eldestWeight;
+        } else {
+          protectedWeight -= eldestWeight;
+        }
+        evicted++;
+      }
+      return evicted;
+    }
+
+    public synchronized void clear() {
+      probation.clear();
+      protect.clear();
+      probationWeight = 0;
+      protectedWeight = 0;
+    }
+
+    public synchronized int size() {
+      return probation.size() + protect.size();
+    }
+
+    public synchronized long weight() {
+      return probationWeight + protectedWeight;
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.d_project.qrcode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Flow パイプラインの処理ステージ.
+ * <br/>上流から受け取ったアイテムを最大 parallelism 件まで並列に変換し、下流へ発行します。
+ * <br/>下流のバッファ(maxBufferCapacity)が一杯になると発行がブロックし、上流への要求も止まるため、
+ * 大量のコードを遅い出力先へ流してもメモリ使用量は一定に保たれます。
+ * <br/>■使い方
+ * <pre>
+ * QRCodeProcessor&lt;String, QRCode&gt; encoder = QRCodeProcessor.encoder(ErrorCorrectionLevel.M, 4, 256);
+ * QRCodeProcessor&lt;QRCode, byte[]&gt; writer = QRCodeProcessor.gifWriter(2, 8, 4, 256);
+ * encoder.subscribe(writer);
+ * writer.subscribe(sink);
+ * source.subscribe(encoder);
+ * </pre>
+ * parallelism が 2 以上の場合、アイテムの順序は保証されません。
+ * <br/>下流の購読は上流の発行を始める前に行ってください。
+ *
+ * @param <T> 入力アイテムの型
+ * @param <R> 出力アイテムの型
+ * @author Leonard Woo
+ */
+public class QRCodeProcessor<T, R> extends SubmissionPublisher<R> implements Flow.Processor<T, R> {
+
+  private final Function<? super T, ? extends R> function;
+  private final Executor executor;
+  private final int parallelism;
+  private final AtomicInteger pending;
+
+  private volatile Flow.Subscription subscription;
+  private volatile boolean completed;
+
+  /**
+   * コンストラクタ
+   *
+   * @param function 変換関数
+   * @param parallelism 同時に処理するアイテムの最大数
+   * @param maxBufferCapacity 下流の購読者ごとのバッファ容量
+   */
+  public QRCodeProcessor(Function<? super T, ? extends R> function, int parallelism,
+      int maxBufferCapacity) {
+    this(function, ForkJoinPool.commonPool(), parallelism, maxBufferCapacity);
+  }
+
+  /**
+   * コンストラクタ
+   *
+   * @param function 変換関数
+   * @param executor 変換及び発行に使用する Executor
+   * @param parallelism 同時に処理するアイテムの最大数
+   * @param maxBufferCapacity 下流の購読者ごとのバッファ容量
+   */
+  public QRCodeProcessor(Function<? super T, ? extends R> function, Executor executor,
+      int parallelism, int maxBufferCapacity) {
+    super(executor, maxBufferCapacity);
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("parallelism: " + parallelism);
+    }
+    this.function = Objects.requireNonNull(function);
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.pending = new AtomicInteger();
+  }
+
+  /**
+   * 文字列から最小の型番の QRCode を作成するステージを生成する。
+   *
+   * @param errorCorrectionLevel 誤り訂正レベル
+   * @param parallelism 同時に処理するアイテムの最大数
+   * @param maxBufferCapacity 下流の購読者ごとのバッファ容量
+   * @return QRCodeProcessor instance.
+   * @see QRCode#getMinimumQRCode(String, int)
+   */
+  public static QRCodeProcessor<String, QRCode> encoder(int errorCorrectionLevel,
+      int parallelism, int maxBufferCapacity) {
+    return new QRCodeProcessor<>(data -> QRCode.getMinimumQRCode(data, errorCorrectionLevel),
+        parallelism, maxBufferCapacity);
+  }
+
+  /**
+   * 文字列から最小の型番の QRCode を作成するステージを生成する。
+   * <br/>boost が true の場合、型番を変えずに収まる範囲で誤り訂正レベルを引き上げます。
+   *
+   * @param errorCorrectionLevel 誤り訂正レベル(下限)
+   * @param maxTypeNumber 最大の型番 (1 - 40)
+   * @param boost 誤り訂正レベルを引き上げる場合 true
+   * @param parallelism 同時に処理するアイテムの最大数
+   * @param maxBufferCapacity 下流の購読者ごとのバッファ容量
+   * @return QRCodeProcessor instance.
+   * @see QRCode#getMinimumQRCode(String, int, int, boolean)
+   */
+  public static QRCodeProcessor<String, QRCode> encoder(int errorCorrectionLevel,
+      int maxTypeNumber, boolean boost, int parallelism, int maxBufferCapacity) {
+    return new QRCodeProcessor<>(
+        data -> QRCode.getMinimumQRCode(data, errorCorrectionLevel, maxTypeNumber, boost),
+        parallelism, maxBufferCapacity);
+  }
+
+  /**
+   * QRCode を GIF のバイト列に変換するステージを生成する。
+   *
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param parallelism 同時に処理するアイテムの最大数
+   * @param maxBufferCapacity 下流の購読者ごとのバッファ容量
+   * @return QRCodeProcessor instance.
+   */
+  public static QRCodeProcessor<QRCode, byte[]> gifWriter(int cellSize, int margin,
+      int parallelism, int maxBufferCapacity) {
+    return new QRCodeProcessor<>(qr -> {
+      try {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GIFImage.write(qr.toBitMatrix(), cellSize, margin, out);
+        return out.toByteArray();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, parallelism, maxBufferCapacity);
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    if (this.subscription != null) {
+      subscription.cancel();
+      return;
+    }
+    this.subscription = subscription;
+    subscription.request(parallelism);
+  }
+
+  @Override
+  public void onNext(T item) {
+    pending.incrementAndGet();
+    executor.execute(() -> process(item) );
+  }
+
+  private void process(T item) {
+    try {
+      if (isClosed() ) {
+        return;
+      }
+      R result = function.apply(item);
+      if (result != null) {
+        submit(result);
+      }
+      subscription.request(1);
+    } catch (Throwable t) {
+      subscription.cancel();
+      closeExceptionally(t);
+    } finally {
+      if (pending.decrementAndGet() == 0 && completed) {
+        close();
+      }
+    }
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    closeExceptionally(throwable);
+  }
+
+  @Override
+  public void onComplete() {
+    completed = true;
+    if (pending.get() == 0) {
+      close();
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.d_project.qrcode;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * 連番のQRコードを作成する.
+ * <br/>"TKT-000000001" のような固定部分と桁数固定の数字からなるデータのQRコードを、番号順に作成します。
+ * 型番、セグメント構成、RSブロックは最初に一度だけ決定し、番号ごとには前の番号から変化したビットの
+ * コード語及び誤り訂正コードの差分だけを更新します。
+ * <br/>■使い方
+ * <pre>
+ * QRSequence sequence = new QRSequence("TKT-", 9, "", ErrorCorrectionLevel.M, 1, 9999999);
+ * sequence.setMaskInterval(0);
+ * while (sequence.hasNext() ) {
+ *   QRCode qr = sequence.next();
+ * }
+ * </pre>
+ *
+ * @author Leonard Woo
+ */
+public class QRSequence {
+
+  private final QRTemplate template;
+  private final int digits;
+  private final long end;
+  private final int[][] dcdata;
+  private final int[][] ecdata;
+  private final char[] chars;
+  private byte[] bits;
+  private byte[] nextBits;
+
+  private long number;
+  private int maskInterval;
+  private int maskPattern;
+  private long count;
+
+  /**
+   * コンストラクタ
+   *
+   * @param prefix 固定部分(前)
+   * @param digits 番号の桁数
+   * @param suffix 固定部分(後)
+   * @param errorCorrectionLevel 誤り訂正レベル
+   * @param start 最初の番号
+   * @param end 最後の番号
+   */
+  public QRSequence(String prefix, int digits, String suffix, int errorCorrectionLevel,
+      long start, long end) {
+    if (digits <= 0 || 18 < digits) {
+      throw new IllegalArgumentException("digits: " + digits);
+    }
+    if (start < 0 || end < start || String.valueOf(end).length() > digits) {
+      throw new IllegalArgumentException("start: " + start + " /end: " + end);
+    }
+    this.template = new QRTemplate(prefix, Mode.MODE_NUMBER, digits, suffix, errorCorrectionLevel);
+    this.digits = digits;
+    this.end = end;
+    this.dcdata = template.getDCData();
+    this.ecdata = template.getECData();
+    this.chars = new char[digits];
+    int byteLength = (QRUtil.getDataLengthInBits(Mode.MODE_NUMBER, digits) + 7) / 8;
+    this.bits = new byte[byteLength];
+    this.nextBits = new byte[byteLength];
+    this.number = start;
+    this.maskInterval = 1;
+  }
+
+  /**
+   * マスクパターンを評価する間隔を設定する。
+   * <br/>1 の場合は毎回、N の場合は N 件ごとに最適なマスクパターンを評価します。
+   * 0 の場合は最初に評価したマスクパターンを使い続けます。
+   *
+   * @param maskInterval 間隔 (既定値 1)
+   */
+  public void setMaskInterval(int maskInterval) {
+    if (maskInterval < 0) {
+      throw new IllegalArgumentException("maskInterval: " + maskInterval);
+    }
+    this.maskInterval = maskInterval;
+  }
+
+  /**
+   * 型番を取得する。
+   *
+   * @return 型番
+   */
+  public int getTypeNumber() {
+    return template.getTypeNumber();
+  }
+
+  /**
+   * 次の番号があるかどうかを取得する。
+   *
+   * @return true if the sequence has more numbers.
+   */
+  public boolean hasNext() {
+    return number <= end;
+  }
+
+  /**
+   * 次の番号のQRコードを作成する。
+   *
+   * @return 作成済みの QRCode
+   */
+  public QRCode next() {
+    if (!hasNext() ) {
+      throw new NoSuchElementException();
+    }
+
+    // 数字
+    long n = number;
+    for (int i = digits - 1; i >= 0; i--) {
+      chars[i] = (char) ('0' + n % 10);
+      n /= 10;
+    }
+
+    // 数字のビット列
+    Arrays.fill(nextBits, (byte) 0);
+    int bitIndex = 0;
+    int i = 0;
+    while (i < digits) {
+      int length = Math.min(3, digits - i);
+      int num = 0;
+      for (int j = 0; j < length; j++) {
+        num = num * 10 + (chars[i + j] - '0');
+      }
+      int numBits = length == 3 ? 10 : length == 2 ? 7 : 4;
+      for (int b = numBits - 1; b >= 0; b--) {
+        if ( ( (num >>> b) & 1) == 1) {
+          nextBits[bitIndex / 8] |= (byte) (0x80 >>> (bitIndex % 8) );
+        }
+        bitIndex++;
+      }
+      i += length;
+    }
+
+    // 前の番号との差分
+    for (int b = 0; b < bits.length; b++) {
+      bits[b] ^= nextBits[b];
+    }
+    template.xorVariable(bits, dcdata, ecdata);
+    byte[] swap = bits;
+    bits = nextBits;
+    nextBits = swap;
+
+    QRCode qr = template.newQRCode(new QRNumber(new String(chars) ) );
+    byte[] data = QRCode.interleave(template.getRSBlocks(), dcdata, ecdata);
+    if (count == 0 || (maskInterval > 0 && count % maskInterval == 0) ) {
+      qr.make(data);
+      maskPattern = qr.getMaskPattern();
+    } else {
+      qr.make(data, maskPattern);
+    }
+
+    number++;
+    count++;
+    return qr;
+  }
+}
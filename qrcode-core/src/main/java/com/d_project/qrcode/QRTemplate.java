@@ -0,0 +1,348 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.d_project.qrcode;
+
+/**
+ * 固定部分と可変部分からなるデータのQRコードのテンプレート.
+ * <br/>固定部分のデータコード及び誤り訂正コードは作成時に一度だけ計算します。
+ * 誤り訂正コード(リード・ソロモン符号)は GF(256) 上で線形なので、
+ * コードごとには可変部分のコード語の寄与だけを加算(XOR)します。
+ * <br/>ただし既定ではコードごとにマスクパターンを評価し、8通りのマスクパターンでモジュールを配置して
+ * 失点を計算します。この評価は誤り訂正コードの計算よりはるかに重いため、既定のままでは
+ * QRCode.make() とほとんど変わりません。setMaskPattern() でマスクパターンを固定すると、
+ * この評価を省略して1通りの配置だけを行います。
+ * <br/>■使い方
+ * <pre>
+ * QRTemplate template = new QRTemplate("https://example.com/t/", Mode.MODE_8BIT_BYTE, 8, "",
+ *     ErrorCorrectionLevel.M);
+ * template.setMaskPattern(0);
+ * QRCode qr = template.make("a1b2c3d4");
+ * </pre>
+ *
+ * @author Leonard Woo
+ */
+public class QRTemplate {
+
+  private final int typeNumber;
+  private final int errorCorrectionLevel;
+  private final QRData prefix;
+  private final QRData suffix;
+  private final int variableMode;
+  private final int variableLength;
+  private final int variableOffset;
+  private final int variableBits;
+
+  private final RSBlock[] rsBlocks;
+  private final int[][] dcdata;
+  private final int[][] ecdata;
+
+  /** 可変部分のコード語の位置 */
+  private final int firstCodeword;
+  private final int[] codewordBlock;
+  private final int[] codewordIndex;
+  /** 可変部分のコード語ごとの単位誤り訂正コードの対数 (0 の場合 -1) */
+  private final int[][] unitECLog;
+
+  /** 固定するマスクパターン (-1 の場合、コードごとに評価) */
+  private int maskPattern;
+
+  /**
+   * コンストラクタ
+   * <br/>データが収まる最小の型番を使用します。
+   *
+   * @param prefix 固定部分(前)
+   * @param variableMode 可変部分のモード
+   * @param variableLength 可変部分の文字数(8ビットバイトモードはバイト数)
+   * @param suffix 固定部分(後)
+   * @param errorCorrectionLevel 誤り訂正レベル
+   * @see Mode
+   */
+  public QRTemplate(String prefix, int variableMode, int variableLength, String suffix,
+      int errorCorrectionLevel) {
+    this(prefix, variableMode, variableLength, suffix, errorCorrectionLevel, 0);
+  }
+
+  /**
+   * コンストラクタ
+   *
+   * @param prefix 固定部分(前)
+   * @param variableMode 可変部分のモード
+   * @param variableLength 可変部分の文字数(8ビットバイトモードはバイト数)
+   * @param suffix 固定部分(後)
+   * @param errorCorrectionLevel 誤り訂正レベル
+   * @param typeNumber 型番 (0 の場合、データが収まる最小の型番)
+   * @see Mode
+   */
+  public QRTemplate(String prefix, int variableMode, int variableLength, String suffix,
+      int errorCorrectionLevel, int typeNumber) {
+    if (variableLength <= 0) {
+      throw new IllegalArgumentException("variableLength: " + variableLength);
+    }
+    this.errorCorrectionLevel = errorCorrectionLevel;
+    this.prefix = prefix.isEmpty() ? null : QRUtil.createQRData(prefix, QRUtil.getMode(prefix) );
+    this.suffix = suffix.isEmpty() ? null : QRUtil.createQRData(suffix, QRUtil.getMode(suffix) );
+    this.variableMode = variableMode;
+    this.variableLength = variableLength;
+    this.variableBits = QRUtil.getDataLengthInBits(variableMode, variableLength);
+    this.typeNumber = typeNumber > 0 ? typeNumber : getMinimumTypeNumber();
+    this.rsBlocks = RSBlock.getRSBlocks(this.typeNumber, errorCorrectionLevel);
+
+    // 可変部分を 0 としたデータ
+    BitBuffer buffer = new BitBuffer();
+    putData(buffer, this.prefix);
+    buffer.put(variableMode, 4);
+    buffer.put(variableLength, lengthInBits(variableMode) );
+    this.variableOffset = buffer.getLengthInBits();
+    for (int i = 0; i < variableBits; i++) {
+      buffer.put(false);
+    }
+    putData(buffer, this.suffix);
+    QRCode.padData(buffer, rsBlocks);
+
+    this.dcdata = new int[rsBlocks.length][];
+    this.ecdata = new int[rsBlocks.length][];
+    this.firstCodeword = variableOffset / 8;
+    int lastCodeword = (variableOffset + variableBits - 1) / 8;
+    this.codewordBlock = new int[lastCodeword - firstCodeword + 1];
+    this.codewordIndex = new int[codewordBlock.length];
+    this.unitECLog = new int[codewordBlock.length][];
+
+    int offset = 0;
+    for (int r = 0; r < rsBlocks.length; r++) {
+      int dcCount = rsBlocks[r].getDataCount();
+      int ecCount = rsBlocks[r].getTotalCount() - dcCount;
+
+      dcdata[r] = new int[dcCount];
+      for (int i = 0; i < dcCount; i++) {
+        dcdata[r][i] = 0xff & buffer.getBuffer()[offset + i];
+
+        int c = offset + i - firstCodeword;
+        if (0 <= c && c < codewordBlock.length) {
+          int[] unit = new int[dcCount];
+          unit[i] = 1;
+          codewordBlock[c] = r;
+          codewordIndex[c] = i;
+          unitECLog[c] = QRCode.createECData(unit, ecCount);
+          for (int e = 0; e < unitECLog[c].length; e++) {
+            unitECLog[c][e] = unitECLog[c][e] == 0 ? -1 : QRMath.glog(unitECLog[c][e]);
+          }
+        }
+      }
+      ecdata[r] = QRCode.createECData(dcdata[r], ecCount);
+      offset += dcCount;
+    }
+    this.maskPattern = -1;
+  }
+
+  private int getMinimumTypeNumber() {
+    for (int type = 1; type <= 40; type++) {
+      int bits = 4 + lengthInBits(type, variableMode) + variableBits;
+      bits += getLengthInBits(prefix, type) + getLengthInBits(suffix, type);
+
+      if (bits <= RSBlock.getTotalDataCount(type, errorCorrectionLevel) * 8) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("code length overflow.");
+  }
+
+  private static int getLengthInBits(QRData data, int type) {
+    if (data == null) {
+      return 0;
+    }
+    return 4 + data.getLengthInBits(type) + QRUtil.getDataLengthInBits(data.getMode(), data.getLength() );
+  }
+
+  private int lengthInBits(int mode) {
+    return lengthInBits(typeNumber, mode);
+  }
+
+  private static int lengthInBits(int type, int mode) {
+    return QRUtil.createQRData("", mode).getLengthInBits(type);
+  }
+
+  private void putData(BitBuffer buffer, QRData data) {
+    if (data != null) {
+      buffer.put(data.getMode(), 4);
+      buffer.put(data.getLength(), data.getLengthInBits(typeNumber) );
+      data.write(buffer);
+    }
+  }
+
+  /**
+   * 型番を取得する。
+   *
+   * @return 型番
+   */
+  public int getTypeNumber() {
+    return typeNumber;
+  }
+
+  /**
+   * 誤り訂正レベルを取得する。
+   *
+   * @return 誤り訂正レベル
+   */
+  public int getErrorCorrectionLevel() {
+    return errorCorrectionLevel;
+  }
+
+  /**
+   * マスクパターンを固定する。
+   * <br/>固定すると make(String) ごとのマスクパターンの評価を省略します。
+   * 失点が最小とは限りませんが、どのマスクパターンでも読み取りは可能です。
+   *
+   * @param maskPattern マスクパターン (0 - 7)。-1 の場合、コードごとに評価する(既定値)
+   */
+  public void setMaskPattern(int maskPattern) {
+    if (maskPattern < -1 || 7 < maskPattern) {
+      throw new IllegalArgumentException("maskPattern: " + maskPattern);
+    }
+    this.maskPattern = maskPattern;
+  }
+
+  /**
+   * 固定したマスクパターンを取得する。
+   *
+   * @return マスクパターン。固定していない場合は -1
+   */
+  public int getMaskPattern() {
+    return maskPattern;
+  }
+
+  /**
+   * 可変部分を指定してQRコードを作成する。
+   *
+   * @param variable 可変部分
+   * @return 作成済みの QRCode
+   */
+  public QRCode make(String variable) {
+    QRData data = QRUtil.createQRData(variable, variableMode);
+    int[][] dc = copy(dcdata);
+    int[][] ec = copy(ecdata);
+    addVariable(data, dc, ec);
+
+    QRCode qr = newQRCode(data);
+    byte[] codes = QRCode.interleave(rsBlocks, dc, ec);
+    if (maskPattern < 0) {
+      qr.make(codes);
+    } else {
+      qr.make(codes, maskPattern);
+    }
+    return qr;
+  }
+
+  QRCode newQRCode(QRData data) {
+    QRCode qr = new QRCode();
+    qr.setTypeNumber(typeNumber);
+    qr.setErrorCorrectionLevel(errorCorrectionLevel);
+    if (prefix != null) {
+      qr.addData(prefix);
+    }
+    qr.addData(data);
+    if (suffix != null) {
+      qr.addData(suffix);
+    }
+    return qr;
+  }
+
+  /**
+   * 可変部分のビット列を作成する。
+   */
+  byte[] getVariableBits(QRData data) {
+    if (data.getLength() != variableLength) {
+      throw new IllegalArgumentException("length: " + data.getLength() + " != " + variableLength);
+    }
+    BitBuffer buffer = new BitBuffer();
+    data.write(buffer);
+    return buffer.getBuffer();
+  }
+
+  /**
+   * 可変部分のデータを加算(XOR)する。
+   * <br/>dc 及び ec の可変部分は、加算前の値(テンプレートでは 0)との差分として扱われます。
+   */
+  void addVariable(QRData data, int[][] dc, int[][] ec) {
+    xorVariable(getVariableBits(data), dc, ec);
+  }
+
+  /**
+   * 可変部分のビット列の差分を加算(XOR)し、誤り訂正コードを更新する。
+   */
+  void xorVariable(byte[] bits, int[][] dc, int[][] ec) {
+    int shift = variableOffset % 8;
+    int byteLength = (variableBits + 7) / 8;
+
+    for (int c = 0; c < codewordBlock.length; c++) {
+      // 可変部分のコード語 c に含まれるビット
+      int b = c - (shift == 0 ? 0 : 1);
+      int value = 0;
+      if (shift == 0) {
+        value = (b < byteLength) ? 0xff & bits[b] : 0;
+      } else {
+        if (0 <= b && b < byteLength) {
+          value = (bits[b] << (8 - shift) ) & 0xff;
+        }
+        if (b + 1 < byteLength) {
+          value |= (0xff & bits[b + 1]) >>> shift;
+        }
+      }
+      if (value == 0) {
+        continue;
+      }
+
+      int r = codewordBlock[c];
+      dc[r][codewordIndex[c]] ^= value;
+
+      int log = QRMath.glog(value);
+      int[] unit = unitECLog[c];
+      int[] e = ec[r];
+      for (int i = 0; i < unit.length; i++) {
+        if (unit[i] >= 0) {
+          e[i] ^= QRMath.gexp(log + unit[i]);
+        }
+      }
+    }
+  }
+
+  RSBlock[] getRSBlocks() {
+    return rsBlocks;
+  }
+
+  int[][] getDCData() {
+    return copy(dcdata);
+  }
+
+  int[][] getECData() {
+    return copy(ecdata);
+  }
+
+  private static int[][] copy(int[][] data) {
+    int[][] copy = new int[data.length][];
+    for (int i = 0; i < data.length; i++) {
+      copy[i] = data[i].clone();
+    }
+    return copy;
+  }
+}
@@ -126,6 +126,32 @@ class QRUtil {
     return MAX_LENGTH[t][e][m];
   }
 
+  /**
+   * モードに対する QRData を作成する。
+   */
+  public static QRData createQRData(String data, int mode) {
+    return switch (mode) {
+      case Mode.MODE_NUMBER -> new QRNumber(data);
+      case Mode.MODE_ALPHA_NUM -> new QRAlphaNum(data);
+      case Mode.MODE_8BIT_BYTE -> new QR8BitByte(data);
+      case Mode.MODE_KANJI -> new QRKanji(data);
+      default -> throw new IllegalArgumentException("mode:" + mode);
+    };
+  }
+
+  /**
+   * モード及び文字数(8ビットバイトはバイト数)に対するデータのビット長を取得する。
+   */
+  public static int getDataLengthInBits(int mode, int length) {
+    return switch (mode) {
+      case Mode.MODE_NUMBER -> 10 * (length / 3) + (length % 3 == 0 ? 0 : length % 3 == 1 ? 4 : 7);
+      case Mode.MODE_ALPHA_NUM -> 11 * (length / 2) + 6 * (length % 2);
+      case Mode.MODE_8BIT_BYTE -> 8 * length;
+      case Mode.MODE_KANJI -> 13 * length;
+      default -> throw new IllegalArgumentException("mode: " + mode);
+    };
+  }
+
   /**
    * エラー訂正多項式を取得する。
    */
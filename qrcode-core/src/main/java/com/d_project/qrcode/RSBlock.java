@@ -280,6 +280,9 @@ class RSBlock {
     {20, 45, 15, 61, 46, 16}
   };
 
+  /** 型番及び誤り訂正レベルごとのデータコード数の合計 */
+  private static final int[] TOTAL_DATA_COUNT_TABLE = createTotalDataCountTable();
+
   private final int totalCount;
   private final int dataCount;
 
@@ -308,6 +311,37 @@ class RSBlock {
     return list.toArray(RSBlock[]::new);
   }
 
+  /**
+   * データコード数の合計を取得する。
+   * <br/>RSBlock を作成せずに、作成済みの表から取得します。
+   *
+   * @param typeNumber 型番
+   * @param errorCorrectionLevel 誤り訂正レベル
+   * @return データコード数の合計(バイト)
+   */
+  static int getTotalDataCount(int typeNumber, int errorCorrectionLevel) {
+    if (typeNumber < 1 || typeNumber > TOTAL_DATA_COUNT_TABLE.length / 4
+        || errorCorrectionLevel < 0 || errorCorrectionLevel > 3) {
+      throw new IllegalArgumentException("tn: " + typeNumber + " /ecl: " + errorCorrectionLevel);
+    }
+    return TOTAL_DATA_COUNT_TABLE[(typeNumber - 1) * 4 + errorCorrectionLevel];
+  }
+
+  private static int[] createTotalDataCountTable() {
+    int[] table = new int[RS_BLOCK_TABLE.length];
+    for (int typeNumber = 1; typeNumber <= table.length / 4; typeNumber++) {
+      for (int errorCorrectionLevel = 0; errorCorrectionLevel < 4; errorCorrectionLevel++) {
+        int[] rsBlock = getRsBlockTable(typeNumber, errorCorrectionLevel);
+        int totalDataCount = 0;
+        for (int i = 0; i < rsBlock.length; i += 3) {
+          totalDataCount += rsBlock[i] * rsBlock[i + 2];
+        }
+        table[(typeNumber - 1) * 4 + errorCorrectionLevel] = totalDataCount;
+      }
+    }
+    return table;
+  }
+
   private static int[] getRsBlockTable(int typeNumber, int errorCorrectionLevel) {
     try {
       return switch (errorCorrectionLevel) {
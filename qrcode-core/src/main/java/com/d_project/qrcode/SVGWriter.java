@@ -0,0 +1,243 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.d_project.qrcode;
+
+import java.io.IOException;
+
+/**
+ * SVGイメージの出力.
+ * <br/>暗モジュールを1つの path 要素として Appendable に直接出力します。
+ * 既定では各行の連続する暗モジュールを1つの矩形にまとめ、trace を指定すると
+ * 連結した暗モジュールの領域を輪郭線で出力します。
+ * <br/>■使い方
+ * <pre>
+ * SVGWriter.write(qr.toBitMatrix(), 4, 16, writer);
+ * </pre>
+ *
+ * @author Leonard Woo
+ */
+public final class SVGWriter {
+
+  private static final int RIGHT = 1;
+  private static final int DOWN = 2;
+  private static final int LEFT = 4;
+  private static final int UP = 8;
+
+  private SVGWriter() {
+  }
+
+  /**
+   * QRコードを SVG で出力する。(黒/白)
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param out 出力先
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void write(BitMatrix matrix, int cellSize, int margin, Appendable out)
+      throws IOException {
+    write(matrix, cellSize, margin, 0x000000, 0xffffff, false, out);
+  }
+
+  /**
+   * QRコードを SVG で出力する。
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param darkColor 暗色(RGB)
+   * @param lightColor 明色(RGB)
+   * @param trace true の場合は領域の輪郭線、false の場合は行ごとの矩形で出力する
+   * @param out 出力先
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void write(BitMatrix matrix, int cellSize, int margin, int darkColor,
+      int lightColor, boolean trace, Appendable out) throws IOException {
+    int imageSize = matrix.getModuleCount() * cellSize + margin * 2;
+
+    out.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"");
+    append(out, imageSize);
+    out.append("\" height=\"");
+    append(out, imageSize);
+    out.append("\" viewBox=\"0 0 ");
+    append(out, imageSize);
+    out.append(' ');
+    append(out, imageSize);
+    out.append("\">\n");
+
+    out.append("<rect width=\"100%\" height=\"100%\" fill=\"");
+    appendColor(out, lightColor);
+    out.append("\"/>\n");
+
+    out.append("<path fill=\"");
+    appendColor(out, darkColor);
+    out.append("\" shape-rendering=\"crispEdges\" d=\"");
+    writePath(matrix, cellSize, margin, trace, out);
+    out.append("\"/>\n");
+
+    out.append("</svg>\n");
+  }
+
+  /**
+   * 暗モジュールを path 要素の d 属性の値として出力する。
+   * <br/>座標の単位は pixel で、左上が (margin, margin) になります。
+   *
+   * @param matrix モジュール
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param trace true の場合は領域の輪郭線、false の場合は行ごとの矩形で出力する
+   * @param out 出力先
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void writePath(BitMatrix matrix, int cellSize, int margin, boolean trace,
+      Appendable out) throws IOException {
+    if (trace) {
+      writeOutline(matrix, cellSize, margin, out);
+    } else {
+      writeRuns(matrix, cellSize, margin, out);
+    }
+  }
+
+  private static void writeRuns(BitMatrix matrix, int cellSize, int margin, Appendable out)
+      throws IOException {
+    int moduleCount = matrix.getModuleCount();
+    for (int row = 0; row < moduleCount; row++) {
+      int col = matrix.nextDark(row, 0);
+      while (col < moduleCount) {
+        int end = matrix.nextLight(row, col);
+        int width = (end - col) * cellSize;
+        out.append('M');
+        append(out, margin + col * cellSize);
+        out.append(',');
+        append(out, margin + row * cellSize);
+        out.append('h');
+        append(out, width);
+        out.append('v');
+        append(out, cellSize);
+        out.append('h');
+        append(out, -width);
+        out.append('z');
+        col = matrix.nextDark(row, end);
+      }
+    }
+  }
+
+  /**
+   * 暗モジュールの領域の境界を、暗モジュールが進行方向の右側になる向きで辿って出力する。
+   * <br/>外側の輪郭は時計回り、穴は反時計回りになるため、既定の塗りつぶし規則 (nonzero) で描画できます。
+   */
+  private static void writeOutline(BitMatrix matrix, int cellSize, int margin, Appendable out)
+      throws IOException {
+    int moduleCount = matrix.getModuleCount();
+    int stride = moduleCount + 1;
+
+    // 各頂点から出る境界の辺 (RIGHT, DOWN, LEFT, UP)
+    byte[] edges = new byte[stride * stride];
+    for (int row = 0; row < moduleCount; row++) {
+      int col = matrix.nextDark(row, 0);
+      while (col < moduleCount) {
+        int end = matrix.nextLight(row, col);
+        for (int c = col; c < end; c++) {
+          int v = row * stride + c;
+          if (row == 0 || !matrix.isDark(row - 1, c) ) {
+            edges[v] |= RIGHT;
+          }
+          if (row == moduleCount - 1 || !matrix.isDark(row + 1, c) ) {
+            edges[v + stride + 1] |= LEFT;
+          }
+        }
+        edges[row * stride + end] |= DOWN;
+        edges[(row + 1) * stride + col] |= UP;
+        col = matrix.nextDark(row, end);
+      }
+    }
+
+    for (int start = 0; start < edges.length; start++) {
+      if (edges[start] == 0) {
+        continue;
+      }
+      out.append('M');
+      append(out, margin + (start % stride) * cellSize);
+      out.append(',');
+      append(out, margin + (start / stride) * cellSize);
+
+      int v = start;
+      int dir = 0;
+      int length = 0;
+      do {
+        int next = nextDirection(edges[v], dir);
+        edges[v] &= (byte) ~next;
+        if (next != dir && length > 0) {
+          appendSegment(out, dir, length * cellSize);
+          length = 0;
+        }
+        dir = next;
+        length++;
+        v += dir == RIGHT ? 1 : dir == DOWN ? stride : dir == LEFT ? -1 : -stride;
+      } while (v != start);
+
+      // 最後の辺は z で閉じる
+      out.append('z');
+    }
+  }
+
+  /**
+   * 頂点から出る辺のうち、右折、直進、左折の順に優先して方向を選ぶ。
+   */
+  private static int nextDirection(int edges, int dir) {
+    if (dir != 0) {
+      int right = ( (dir << 1) | (dir >>> 3) ) & 0xf;
+      if ( (edges & right) != 0) {
+        return right;
+      }
+      if ( (edges & dir) != 0) {
+        return dir;
+      }
+    }
+    return Integer.lowestOneBit(edges);
+  }
+
+  private static void appendSegment(Appendable out, int dir, int length) throws IOException {
+    out.append(dir == RIGHT || dir == LEFT ? 'h' : 'v');
+    append(out, dir == LEFT || dir == UP ? -length : length);
+  }
+
+  private static void appendColor(Appendable out, int color) throws IOException {
+    out.append('#');
+    for (int shift = 20; shift >= 0; shift -= 4) {
+      out.append(Character.forDigit( (color >>> shift) & 0xf, 16) );
+    }
+  }
+
+  private static void append(Appendable out, int i) throws IOException {
+    if (i < 0) {
+      out.append('-');
+      i = -i;
+    }
+    if (i >= 10) {
+      append(out, i / 10);
+    }
+    out.append( (char) ('0' + i % 10) );
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.d_project.qrcode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 1ピクセル1ビットの走査線を受け取るイメージの出力.
+ *
+ * @author Leonard Woo
+ * @see PNGWriter
+ * @see GIFWriter
+ */
+interface ScanlineWriter {
+
+  /**
+   * 走査線を書き込む。
+   *
+   * @param line 1ピクセル1ビット(暗: 1, 上位ビットから)の走査線
+   * @throws IOException if an I/O error occurs.
+   */
+  void writeRow(byte[] line) throws IOException;
+
+  /**
+   * 残りのデータ及び終端を出力する。
+   *
+   * @throws IOException if an I/O error occurs.
+   */
+  void finish() throws IOException;
+
+  /**
+   * 形式の名前が使用できるかどうかを確認する。
+   */
+  static void checkFormat(String format) {
+    if (!"png".equals(format) && !"gif".equals(format) ) {
+      throw new IllegalArgumentException("format: " + format);
+    }
+  }
+
+  /**
+   * 形式 (png 又は gif) に応じた ScanlineWriter を生成する。(黒/白)
+   */
+  static ScanlineWriter create(String format, OutputStream out, int width, int height) {
+    checkFormat(format);
+    if ("png".equals(format) ) {
+      return new PNGWriter(out, width, height, 0x000000, 0xffffff);
+    }
+    return new GIFWriter(out, width, height);
+  }
+}
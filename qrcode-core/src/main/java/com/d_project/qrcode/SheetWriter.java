@@ -0,0 +1,263 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.d_project.qrcode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 複数のQRコードを格子状に並べたシートの出力.
+ * <br/>シートを横1列分のタイルの帯に分け、帯ごとにQRコードを作成して走査線を PNGWriter 又は GIFWriter に書き込みます。
+ * シート全体のイメージは作成せず、メモリ使用量はタイルの数ではなく列の数と並列数で決まります。
+ * データも Iterator から帯の分ずつ読み込みます。
+ * <br/>各QRコードはタイルの中央に配置します。余白を含むQRコードがタイルに収まらない場合は例外になります。
+ * <br/>帯ごとに出力するため、途中の帯で例外になった場合、出力先にはヘッダとそれまでの帯が書き込まれています。
+ * 不完全なイメージを残さないためには、一時ファイル等に出力して正常に終了した場合だけ使用してください。
+ * <br/>setParallel() を呼び出すと、後続の帯のQRコードを並列に作成し、PNG の場合は帯ごとに並列で圧縮します。
+ * <br/>■使い方
+ * <pre>
+ * SheetWriter sheet = new SheetWriter(4, 200, 200, 4, 16, ErrorCorrectionLevel.M);
+ * sheet.setParallel(ForkJoinPool.commonPool(), 8);
+ * sheet.write(payloads.iterator(), count, "png", out);
+ * </pre>
+ *
+ * @author Leonard Woo
+ */
+public class SheetWriter {
+
+  private final int columns;
+  private final int tileWidth;
+  private final int tileHeight;
+  private final int cellSize;
+  private final int margin;
+  private final int errorCorrectionLevel;
+
+  private Executor executor;
+  private int parallelism;
+  private int maxTypeNumber = 10;
+  private boolean boost;
+
+  /**
+   * コンストラクタ
+   *
+   * @param columns 1行のタイルの数
+   * @param tileWidth タイルの幅(pixel)
+   * @param tileHeight タイルの高さ(pixel)
+   * @param cellSize セルのサイズ(pixel)
+   * @param margin 余白(pixel)
+   * @param errorCorrectionLevel 誤り訂正レベル
+   */
+  public SheetWriter(int columns, int tileWidth, int tileHeight, int cellSize, int margin,
+      int errorCorrectionLevel) {
+    if (columns <= 0 || tileWidth <= 0 || tileHeight <= 0) {
+      throw new IllegalArgumentException("columns: " + columns
+          + " /tileWidth: " + tileWidth + " /tileHeight: " + tileHeight);
+    }
+    if (cellSize <= 0 || margin < 0) {
+      throw new IllegalArgumentException("cellSize: " + cellSize + " /margin: " + margin);
+    }
+    this.columns = columns;
+    this.tileWidth = tileWidth;
+    this.tileHeight = tileHeight;
+    this.cellSize = cellSize;
+    this.margin = margin;
+    this.errorCorrectionLevel = errorCorrectionLevel;
+  }
+
+  /**
+   * QRコードの作成及び圧縮を並列で行う。
+   * <br/>同時に作成する帯は最大 parallelism 個です。
+   *
+   * @param executor 使用する Executor
+   * @param parallelism 同時に処理する帯の最大数
+   */
+  public void setParallel(Executor executor, int parallelism) {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("parallelism: " + parallelism);
+    }
+    this.executor = executor;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * 最大の型番を設定する。
+   * <br/>データが最大の型番に収まらない場合、write() は IllegalArgumentException をスローします。
+   *
+   * @param maxTypeNumber 最大の型番 (1 - 40, 既定値 10)
+   * @see QRCode#getMinimumQRCode(String, int, int, boolean)
+   */
+  public void setMaxTypeNumber(int maxTypeNumber) {
+    if (maxTypeNumber < 1 || 40 < maxTypeNumber) {
+      throw new IllegalArgumentException("maxTypeNumber: " + maxTypeNumber);
+    }
+    this.maxTypeNumber = maxTypeNumber;
+  }
+
+  /**
+   * 型番を変えずに収まる範囲で誤り訂正レベルを引き上げるかどうかを設定する。
+   * <br/>コンストラクタの誤り訂正レベルは下限になります。
+   *
+   * @param boost 引き上げる場合 true (既定値 false)
+   * @see QRCode#getMinimumQRCode(String, int, int, boolean)
+   */
+  public void setBoostErrorCorrectionLevel(boolean boost) {
+    this.boost = boost;
+  }
+
+  /**
+   * シートの幅を取得する。
+   *
+   * @return width.
+   */
+  public int getWidth() {
+    return columns * tileWidth;
+  }
+
+  /**
+   * シートの高さを取得する。
+   *
+   * @param count QRコードの数
+   * @return height.
+   */
+  public int getHeight(int count) {
+    return (count + columns - 1) / columns * tileHeight;
+  }
+
+  /**
+   * シートを出力する。
+   *
+   * @param payloads 各タイルのデータ (左上から行ごと)
+   * @param format 形式 (png 又は gif)
+   * @param out 出力先
+   * @throws IOException if an I/O error occurs.
+   * @see #write(Iterator, int, String, OutputStream)
+   */
+  public void write(List<String> payloads, String format, OutputStream out) throws IOException {
+    write(payloads.iterator(), payloads.size(), format, out);
+  }
+
+  /**
+   * シートを出力する。
+   * <br/>イメージの高さをヘッダに書き込むため、データの数を先に指定します。
+   * payloads からは count 個だけ読み込みます。
+   *
+   * @param payloads 各タイルのデータ (左上から行ごと)
+   * @param count データの数
+   * @param format 形式 (png 又は gif)
+   * @param out 出力先
+   * @throws IOException if an I/O error occurs.
+   * @throws IllegalArgumentException payloads のデータが count 個より少ない場合、
+   *     又はQRコードがタイルに収まらない場合 (出力は途中まで書き込まれています)
+   */
+  public void write(Iterator<String> payloads, int count, String format, OutputStream out)
+      throws IOException {
+    ScanlineWriter.checkFormat(format);
+    if (count <= 0) {
+      throw new IllegalArgumentException("count: " + count);
+    }
+    int bandCount = (count + columns - 1) / columns;
+    ScanlineWriter writer = ScanlineWriter.create(format, out, getWidth(), getHeight(count) );
+    if (executor != null && writer instanceof PNGWriter png) {
+      png.setParallel(executor, parallelism, tileHeight);
+    }
+
+    byte[] line = new byte[(getWidth() + 7) / 8];
+    ArrayDeque<CompletableFuture<BitMatrix[]>> bands = new ArrayDeque<>();
+    int nextBand = 0;
+    for (int band = 0; band < bandCount; band++) {
+      // 先読みする帯のQRコードを作成
+      while (nextBand < bandCount && (nextBand == band || executor != null && bands.size() < parallelism) ) {
+        // Iterator は呼び出し元のスレッドでだけ読み込む
+        String[] data = new String[Math.min(columns, count - nextBand * columns)];
+        for (int i = 0; i < data.length; i++) {
+          if (!payloads.hasNext() ) {
+            throw new IllegalArgumentException("payloads: " + (nextBand * columns + i) + " < " + count);
+          }
+          data[i] = payloads.next();
+        }
+        bands.add(executor != null
+            ? CompletableFuture.supplyAsync(() -> encode(data), executor)
+            : CompletableFuture.completedFuture(encode(data) ) );
+        nextBand++;
+      }
+      BitMatrix[] matrices;
+      try {
+        matrices = bands.poll().join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException cause) {
+          throw cause;
+        }
+        throw e;
+      }
+      for (int y = 0; y < tileHeight; y++) {
+        writeBandRow(matrices, y, line);
+        writer.writeRow(line);
+      }
+    }
+    writer.finish();
+  }
+
+  private BitMatrix[] encode(String[] data) {
+    BitMatrix[] matrices = new BitMatrix[data.length];
+    for (int i = 0; i < matrices.length; i++) {
+      BitMatrix matrix = QRCode.getMinimumQRCode(data[i], errorCorrectionLevel, maxTypeNumber, boost).toBitMatrix();
+      int imageSize = matrix.getModuleCount() * cellSize + margin * 2;
+      if (imageSize > tileWidth || imageSize > tileHeight) {
+        throw new IllegalArgumentException("symbol " + imageSize + "px does not fit in tile: " + data[i]);
+      }
+      matrices[i] = matrix;
+    }
+    return matrices;
+  }
+
+  /**
+   * 帯の y 行目の走査線を作成する。
+   */
+  private void writeBandRow(BitMatrix[] matrices, int y, byte[] line) {
+    Arrays.fill(line, (byte) 0);
+    for (int c = 0; c < matrices.length; c++) {
+      BitMatrix matrix = matrices[c];
+      int moduleCount = matrix.getModuleCount();
+      int symbolSize = moduleCount * cellSize;
+      int top = (tileHeight - symbolSize) / 2;
+      if (y < top || top + symbolSize <= y) {
+        continue;
+      }
+      int left = c * tileWidth + (tileWidth - symbolSize) / 2;
+      int row = (y - top) / cellSize;
+      int col = matrix.nextDark(row, 0);
+      while (col < moduleCount) {
+        int end = matrix.nextLight(row, col);
+        BitMatrix.setBits(line, left + col * cellSize, left + end * cellSize);
+        col = matrix.nextDark(row, end);
+      }
+    }
+  }
+}
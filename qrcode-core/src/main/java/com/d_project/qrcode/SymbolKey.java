@@ -0,0 +1,89 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.d_project.qrcode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * QRコードの作成パラメータを表すキー.
+ * <br/>データ(モード、内容)、誤り訂正レベル、型番、8ビットバイトのエンコーディングから作成します。
+ *
+ * @author Leonard Woo
+ */
+final class SymbolKey {
+
+  private final byte[] bytes;
+  private final int hash;
+
+  SymbolKey(byte[] bytes) {
+    this.bytes = bytes;
+    this.hash = Arrays.hashCode(bytes);
+  }
+
+  public static SymbolKey of(QRCode qrCode) {
+    ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(byteOut) ) {
+      out.writeByte(qrCode.getTypeNumber() );
+      out.writeByte(qrCode.getErrorCorrectionLevel() );
+      out.writeUTF(QRCode.get8BitByteEncoding() );
+      out.writeShort(qrCode.getDataCount() );
+      for (int i = 0; i < qrCode.getDataCount(); i++) {
+        QRData data = qrCode.getData(i);
+        out.writeByte(data.getMode() );
+        out.writeInt(data.getData().length() );
+        out.writeChars(data.getData() );
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new SymbolKey(byteOut.toByteArray() );
+  }
+
+  public byte[] getBytes() {
+    return bytes;
+  }
+
+  public int getLength() {
+    return bytes.length;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    return o instanceof SymbolKey that
+        && hash == that.hash
+        && Arrays.equals(bytes, that.bytes);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+}
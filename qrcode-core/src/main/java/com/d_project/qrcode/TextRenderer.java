@@ -0,0 +1,173 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.d_project.qrcode;
+
+import java.io.IOException;
+
+/**
+ * QRコードのテキストでの出力.
+ * <br/>端末やログ向けに、モジュールの行のワードから直接文字を選んで Appendable に出力します。
+ * 余白を含む 64 列ごとに隣り合うワードから取り出したビットで文字の表を引くため、
+ * モジュールごとの範囲検査はありません。
+ * <ul>
+ * <li>writeHalfBlocks: 2行を1文字 (' ', '▀', '▄', '█') で出力。ANSI の色指定を付けることができます。</li>
+ * <li>writeASCII: 1モジュールを2文字で出力</li>
+ * <li>writeBraille: 2列 x 4行を点字1文字 (U+2800 ～ U+28FF) で出力</li>
+ * </ul>
+ * 余白はモジュール単位で指定し、明モジュールとして出力します。
+ * <br/>■使い方
+ * <pre>
+ * TextRenderer.writeHalfBlocks(qr.toBitMatrix(), 4, true, System.out);
+ * </pre>
+ *
+ * @author Leonard Woo
+ */
+public final class TextRenderer {
+
+  /** 上下のモジュール (上: 2, 下: 1) に対応するブロック文字 */
+  private static final char[] HALF_BLOCKS = {' ', '▄', '▀', '█'};
+
+  /** 2列 x 4行のモジュール (行ごとに上位ビットから、各行は左: 2, 右: 1) に対応する点字 */
+  private static final char[] BRAILLE = new char[256];
+
+  /** 点字の各点のビット (行, 列の順) */
+  private static final int[] BRAILLE_DOTS = {0x01, 0x08, 0x02, 0x10, 0x04, 0x20, 0x40, 0x80};
+
+  private static final String ANSI_COLOR = "\u001b[30;47m";
+  private static final String ANSI_RESET = "\u001b[0m";
+
+  static {
+    for (int i = 0; i < BRAILLE.length; i++) {
+      int dots = 0;
+      for (int bit = 0; bit < 8; bit++) {
+        if ( (i & (0x80 >>> bit) ) != 0) {
+          dots |= BRAILLE_DOTS[bit];
+        }
+      }
+      BRAILLE[i] = (char) (0x2800 + dots);
+    }
+  }
+
+  private TextRenderer() {
+  }
+
+  /**
+   * 2行のモジュールを1文字のブロック文字で出力する。
+   * <br/>暗モジュールをブロック文字の塗りつぶし部分とします。
+   *
+   * @param matrix モジュール
+   * @param margin 余白(モジュール数)
+   * @param ansiColor true の場合は各行を黒の文字色及び白の背景色で出力する
+   * @param out 出力先
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void writeHalfBlocks(BitMatrix matrix, int margin, boolean ansiColor,
+      Appendable out) throws IOException {
+    checkMargin(margin);
+    int size = matrix.getModuleCount() + margin * 2;
+    for (int y = 0; y < size; y += 2) {
+      if (ansiColor) {
+        out.append(ANSI_COLOR);
+      }
+      for (int x = 0; x < size; x += 64) {
+        long top = matrix.getWindow(y - margin, x - margin);
+        long bottom = matrix.getWindow(y + 1 - margin, x - margin);
+        for (int n = Math.min(64, size - x); n > 0; n--) {
+          out.append(HALF_BLOCKS[(int) (top >>> 63) << 1 | (int) (bottom >>> 63)]);
+          top <<= 1;
+          bottom <<= 1;
+        }
+      }
+      if (ansiColor) {
+        out.append(ANSI_RESET);
+      }
+      out.append('\n');
+    }
+  }
+
+  /**
+   * 1モジュールを2文字で出力する。
+   *
+   * @param matrix モジュール
+   * @param margin 余白(モジュール数)
+   * @param dark 暗モジュールの文字
+   * @param light 明モジュールの文字
+   * @param out 出力先
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void writeASCII(BitMatrix matrix, int margin, char dark, char light,
+      Appendable out) throws IOException {
+    checkMargin(margin);
+    int size = matrix.getModuleCount() + margin * 2;
+    char[] glyphs = {light, dark};
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x += 64) {
+        long window = matrix.getWindow(y - margin, x - margin);
+        for (int n = Math.min(64, size - x); n > 0; n--) {
+          char c = glyphs[(int) (window >>> 63)];
+          out.append(c).append(c);
+          window <<= 1;
+        }
+      }
+      out.append('\n');
+    }
+  }
+
+  /**
+   * 2列 x 4行のモジュールを点字1文字で出力する。
+   * <br/>暗モジュールを点とします。
+   *
+   * @param matrix モジュール
+   * @param margin 余白(モジュール数)
+   * @param out 出力先
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void writeBraille(BitMatrix matrix, int margin, Appendable out) throws IOException {
+    checkMargin(margin);
+    int size = matrix.getModuleCount() + margin * 2;
+    long[] rows = new long[4];
+    for (int y = 0; y < size; y += 4) {
+      for (int x = 0; x < size; x += 64) {
+        for (int i = 0; i < 4; i++) {
+          rows[i] = matrix.getWindow(y + i - margin, x - margin);
+        }
+        // 1文字 2 列
+        for (int n = Math.min(32, (size - x + 1) / 2); n > 0; n--) {
+          int index = 0;
+          for (int i = 0; i < 4; i++) {
+            index = (index << 2) | (int) (rows[i] >>> 62);
+            rows[i] <<= 2;
+          }
+          out.append(BRAILLE[index]);
+        }
+      }
+      out.append('\n');
+    }
+  }
+
+  private static void checkMargin(int margin) {
+    if (margin < 0) {
+      throw new IllegalArgumentException("margin: " + margin);
+    }
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.d_project.qrcode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.Deflater;
+
+/**
+ * ZPL のグラフィックフィールド (^GF) の出力.
+ * <br/>モジュールをプリンタのドット単位で1行ずつ展開し、^GFA のデータとして Appendable に直接出力します。
+ * ドットは 1 が黒です。
+ * <br/>圧縮の形式は次の3種類です。
+ * <ul>
+ * <li>ASCII: 16進数の繰り返し回数 (G-Y, g-z)、行末の 0/F (, !)、前の行の繰り返し (:) による圧縮</li>
+ * <li>B64: 無圧縮のビットマップを Base64 で符号化</li>
+ * <li>Z64: zlib で圧縮したビットマップを Base64 で符号化</li>
+ * </ul>
+ * B64 及び Z64 の末尾には、Base64 の文字列の CRC-16 (CCITT, 多項式 0x1021, 初期値 0) を16進数4桁で付加します。
+ * <br/>■使い方
+ * <pre>
+ * ZPLWriter.writeLabel(qr.toBitMatrix(), 6, 50, 50, ZPLWriter.Z64, writer);
+ * </pre>
+ *
+ * @author Leonard Woo
+ */
+public final class ZPLWriter {
+
+  /** ASCII 16進数(繰り返し回数による圧縮) */
+  public static final int ASCII = 0;
+
+  /** Base64 */
+  public static final int B64 = 1;
+
+  /** zlib + Base64 */
+  public static final int Z64 = 2;
+
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+  private ZPLWriter() {
+  }
+
+  /**
+   * ラベル (^XA ～ ^XZ) として出力する。
+   * <br/>余白は4モジュール分 (クワイエットゾーン) です。
+   *
+   * @param matrix モジュール
+   * @param dotsPerModule 1モジュールのドット数
+   * @param x 左上のX座標(dot)
+   * @param y 左上のY座標(dot)
+   * @param compression ASCII, B64 又は Z64
+   * @param out 出力先
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void writeLabel(BitMatrix matrix, int dotsPerModule, int x, int y,
+      int compression, Appendable out) throws IOException {
+    writeLabel(matrix, dotsPerModule, dotsPerModule * 4, x, y, compression, out);
+  }
+
+  /**
+   * 余白を指定してラベル (^XA ～ ^XZ) として出力する。
+   * <br/>(x, y) は余白を含むグラフィックフィールドの左上です。
+   *
+   * @param matrix モジュール
+   * @param dotsPerModule 1モジュールのドット数
+   * @param margin 余白(dot)
+   * @param x 左上のX座標(dot)
+   * @param y 左上のY座標(dot)
+   * @param compression ASCII, B64 又は Z64
+   * @param out 出力先
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void writeLabel(BitMatrix matrix, int dotsPerModule, int margin, int x, int y,
+      int compression, Appendable out) throws IOException {
+    out.append("^XA\n^FO").append(Integer.toString(x) ).append(',').append(Integer.toString(y) );
+    writeGraphicField(matrix, dotsPerModule, margin, compression, out);
+    out.append("^FS\n^XZ\n");
+  }
+
+  /**
+   * グラフィックフィールド (^GFA,総バイト数,総バイト数,1行のバイト数,データ) を出力する。
+   *
+   * @param matrix モジュール
+   * @param dotsPerModule 1モジュールのドット数
+   * @param margin 余白(dot)
+   * @param compression ASCII, B64 又は Z64
+   * @param out 出力先
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void writeGraphicField(BitMatrix matrix, int dotsPerModule, int margin,
+      int compression, Appendable out) throws IOException {
+    if (dotsPerModule <= 0 || margin < 0) {
+      throw new IllegalArgumentException("dotsPerModule: " + dotsPerModule + " /margin: " + margin);
+    }
+    int size = matrix.getModuleCount() * dotsPerModule + margin * 2;
+    int rowBytes = (size + 7) / 8;
+    String total = Integer.toString(rowBytes * size);
+    out.append("^GFA,").append(total).append(',').append(total).append(',')
+        .append(Integer.toString(rowBytes) ).append(',');
+
+    switch (compression) {
+    case ASCII -> writeASCII(matrix, dotsPerModule, margin, out);
+    case B64 -> writeBase64(matrix, dotsPerModule, margin, false, out);
+    case Z64 -> writeBase64(matrix, dotsPerModule, margin, true, out);
+    default -> throw new IllegalArgumentException("compression: " + compression);
+    }
+  }
+
+  private static void writeASCII(BitMatrix matrix, int dotsPerModule, int margin, Appendable out)
+      throws IOException {
+    int size = matrix.getModuleCount() * dotsPerModule + margin * 2;
+    byte[] line = new byte[(size + 7) / 8];
+    byte[] previous = null;
+    for (int y = 0; y < size; y++) {
+      int row = y - margin;
+      if (row < 0 || row >= matrix.getModuleCount() * dotsPerModule) {
+        Arrays.fill(line, (byte) 0);
+      } else if (row % dotsPerModule == 0) {
+        matrix.expandRow(row / dotsPerModule, dotsPerModule, margin, line);
+      }
+      if (previous != null && Arrays.equals(previous, line) ) {
+        // 前の行の繰り返し
+        out.append(':');
+        continue;
+      }
+      writeASCIIRow(line, out);
+      if (previous == null) {
+        previous = new byte[line.length];
+      }
+      System.arraycopy(line, 0, previous, 0, line.length);
+    }
+  }
+
+  /**
+   * 1行を16進数で出力する。同じ文字の連続は繰り返し回数にまとめ、行末の 0 は ','、F は '!' とする。
+   */
+  private static void writeASCIIRow(byte[] line, Appendable out) throws IOException {
+    int length = line.length * 2;
+    int i = 0;
+    while (i < length) {
+      int nibble = nibble(line, i);
+      int end = i + 1;
+      while (end < length && nibble(line, end) == nibble) {
+        end++;
+      }
+      if (end == length && (nibble == 0x0 || nibble == 0xf) ) {
+        out.append(nibble == 0x0 ? ',' : '!');
+        return;
+      }
+      appendRun(HEX[nibble], end - i, out);
+      i = end;
+    }
+  }
+
+  private static int nibble(byte[] line, int i) {
+    return (line[i >>> 1] >>> ( (i & 1) == 0 ? 4 : 0) ) & 0xf;
+  }
+
+  /**
+   * 繰り返し回数 (g-z: 20 ～ 400, G-Y: 1 ～ 19) 及び文字を出力する。
+   */
+  private static void appendRun(char c, int count, Appendable out) throws IOException {
+    if (count <= 2) {
+      for (int i = 0; i < count; i++) {
+        out.append(c);
+      }
+      return;
+    }
+    while (count > 0) {
+      int n = Math.min(count, 419);
+      if (n / 20 > 0) {
+        out.append( (char) ('g' + n / 20 - 1) );
+      }
+      if (n % 20 > 0) {
+        out.append( (char) ('G' + n % 20 - 1) );
+      }
+      out.append(c);
+      count -= n;
+    }
+  }
+
+  private static void writeBase64(BitMatrix matrix, int dotsPerModule, int margin,
+      boolean compress, Appendable out) throws IOException {
+    out.append(compress ? ":Z64:" : ":B64:");
+
+    CRCAppender appender = new CRCAppender(out);
+    OutputStream base64 = Base64.getEncoder().wrap(appender);
+    int size = matrix.getModuleCount() * dotsPerModule + margin * 2;
+    byte[] line = new byte[(size + 7) / 8];
+
+    Deflater deflater = compress ? new Deflater(Deflater.BEST_COMPRESSION) : null;
+    byte[] buffer = compress ? new byte[4096] : null;
+    try {
+      for (int y = 0; y < size; y++) {
+        int row = y - margin;
+        if (row < 0 || row >= matrix.getModuleCount() * dotsPerModule) {
+          Arrays.fill(line, (byte) 0);
+        } else if (row % dotsPerModule == 0) {
+          matrix.expandRow(row / dotsPerModule, dotsPerModule, margin, line);
+        }
+        if (deflater == null) {
+          base64.write(line);
+          continue;
+        }
+        deflater.setInput(line);
+        while (!deflater.needsInput() ) {
+          base64.write(buffer, 0, deflater.deflate(buffer) );
+        }
+      }
+      if (deflater != null) {
+        deflater.finish();
+        while (!deflater.finished() ) {
+          base64.write(buffer, 0, deflater.deflate(buffer) );
+        }
+      }
+      // パディングを出力
+      base64.close();
+    } finally {
+      if (deflater != null) {
+        deflater.end();
+      }
+    }
+
+    int crc = appender.crc;
+    out.append(':');
+    for (int shift = 12; shift >= 0; shift -= 4) {
+      out.append(HEX[(crc >>> shift) & 0xf]);
+    }
+  }
+
+  /**
+   * Base64 の文字を Appendable に出力しながら CRC-16 を計算する。
+   */
+  private static class CRCAppender extends AppendableOutputStream {
+
+    private int crc;
+
+    public CRCAppender(Appendable out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      update(b);
+      super.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      for (int i = off; i < off + len; i++) {
+        update(b[i]);
+      }
+      super.write(b, off, len);
+    }
+
+    private void update(int b) {
+      crc ^= (b & 0xff) << 8;
+      for (int i = 0; i < 8; i++) {
+        crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+      }
+      crc &= 0xffff;
+    }
+  }
+}
@@ -27,7 +27,5 @@
  * @author Leonard Woo
  */
 module seppiko.qrcode {
-  requires java.desktop;
-
   exports com.d_project.qrcode;
 }
\ No newline at end of file
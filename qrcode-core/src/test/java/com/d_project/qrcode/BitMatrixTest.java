@@ -0,0 +1,74 @@
+package com.d_project.qrcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.nio.ByteBuffer;
+
+public class BitMatrixTest {
+
+  @Test
+  public void testFormat() {
+    for (int typeNumber : new int[]{1, 2, 7, 14, 40}) {
+      QRCode qr = new QRCode();
+      qr.setTypeNumber(typeNumber);
+      qr.setErrorCorrectionLevel(ErrorCorrectionLevel.Q);
+      qr.addData("F" + typeNumber);
+      qr.make();
+      BitMatrix matrix = qr.toBitMatrix();
+
+      for (boolean checksum : new boolean[]{false, true}) {
+        int length = matrix.getEncodedLength(checksum);
+        int moduleCount = matrix.getModuleCount();
+        Assertions.assertEquals(4 + (moduleCount * moduleCount + 7) / 8 + (checksum ? 4 : 0), length);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(length + 10);
+        buffer.position(3);
+        matrix.writeTo(buffer, checksum);
+        Assertions.assertEquals(3 + length, buffer.position() );
+
+        buffer.flip().position(3);
+        BitMatrix read = BitMatrix.readFrom(buffer);
+        Assertions.assertEquals(3 + length, buffer.position() );
+        Assertions.assertEquals(matrix, read);
+        Assertions.assertEquals(ErrorCorrectionLevel.Q, read.getErrorCorrectionLevel() );
+        Assertions.assertEquals(matrix.getMaskPattern(), read.getMaskPattern() );
+
+        Assertions.assertEquals(matrix, BitMatrix.readFrom(ByteBuffer.wrap(matrix.toByteArray(checksum) ) ) );
+      }
+      if (typeNumber == 40) {
+        Assertions.assertTrue(matrix.getEncodedLength(true) < 4 * 1024);
+      }
+    }
+  }
+
+  @Test
+  public void testInvalid() {
+    BitMatrix matrix = QRCode.getMinimumQRCode("invalid", ErrorCorrectionLevel.H).toBitMatrix();
+
+    byte[] bytes = matrix.toByteArray(true);
+    bytes[20] ^= 0x01;
+    Assertions.assertThrows(IllegalArgumentException.class, () -> BitMatrix.readFrom(ByteBuffer.wrap(bytes) ) );
+
+    byte[] version = matrix.toByteArray(false);
+    version[0] = 2;
+    Assertions.assertThrows(IllegalArgumentException.class, () -> BitMatrix.readFrom(ByteBuffer.wrap(version) ) );
+
+    // ヘッダから求めた長さに満たない
+    byte[] full = matrix.toByteArray(true);
+    for (int length : new int[]{0, 3, 4, full.length - 5, full.length - 1}) {
+      ByteBuffer truncated = ByteBuffer.wrap(full, 0, length);
+      Assertions.assertThrows(IllegalArgumentException.class, () -> BitMatrix.readFrom(truncated) );
+    }
+
+    // 末尾の詰め物のビット
+    byte[] padding = matrix.toByteArray(false);
+    padding[padding.length - 1] |= 0x01;
+    Assertions.assertThrows(IllegalArgumentException.class, () -> BitMatrix.readFrom(ByteBuffer.wrap(padding) ) );
+
+    // チェックサムなしでは検査しない
+    byte[] noChecksum = matrix.toByteArray(false);
+    noChecksum[20] ^= 0x01;
+    Assertions.assertNotEquals(matrix, BitMatrix.readFrom(ByteBuffer.wrap(noChecksum) ) );
+  }
+}
@@ -0,0 +1,109 @@
+package com.d_project.qrcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class BitmapRendererTest {
+
+  @Test
+  public void test() {
+    BitMatrix matrix = QRCode.getMinimumQRCode("https://example.com/bitmap",
+        ErrorCorrectionLevel.L).toBitMatrix();
+    int cellSize = 3;
+    int margin = 4;
+    int imageSize = matrix.getModuleCount() * cellSize + margin * 2;
+    int stride = imageSize + 11;
+    int offset = 5 * stride + 7;
+
+    int[] ints = new int[offset + imageSize * stride];
+    Arrays.fill(ints, 0x12345678);
+    BitmapRenderer.render(matrix, cellSize, margin, ints, offset, stride, 0xff000000, 0xffffffff);
+
+    byte[] bytes = new byte[offset + imageSize * stride];
+    Arrays.fill(bytes, (byte) 0x55);
+    BitmapRenderer.render(matrix, cellSize, margin, bytes, offset, stride, (byte) 0, (byte) 0xff);
+
+    for (int i = 0; i < ints.length; i++) {
+      int x = i % stride - 7;
+      int y = i / stride - 5;
+      if (x < 0 || imageSize <= x || y < 0 || imageSize <= y) {
+        Assertions.assertEquals(0x12345678, ints[i]);
+        Assertions.assertEquals(0x55, bytes[i]);
+        continue;
+      }
+      boolean dark = margin <= x && x < imageSize - margin
+          && margin <= y && y < imageSize - margin
+          && matrix.isDark( (y - margin) / cellSize, (x - margin) / cellSize);
+      Assertions.assertEquals(dark ? 0xff000000 : 0xffffffff, ints[i], "x: " + x + " /y: " + y);
+      Assertions.assertEquals(dark ? 0 : (byte) 0xff, bytes[i]);
+    }
+
+    Assertions.assertThrows(ArrayIndexOutOfBoundsException.class, () ->
+        BitmapRenderer.render(matrix, cellSize, margin, ints, offset + 5 * stride, stride, 0, -1) );
+    Assertions.assertThrows(IllegalArgumentException.class, () ->
+        BitmapRenderer.render(matrix, cellSize, margin, ints, 0, imageSize - 1, 0, -1) );
+  }
+
+  @Test
+  public void testByteBuffer() {
+    BitMatrix matrix = QRCode.getMinimumQRCode("https://example.com/netty",
+        ErrorCorrectionLevel.M).toBitMatrix();
+    int cellSize = 3;
+    int margin = 5;
+    int imageSize = matrix.getModuleCount() * cellSize + margin * 2;
+
+    // 8bpp
+    int stride = imageSize + 3;
+    ByteBuffer bytes = ByteBuffer.allocateDirect(7 + stride * imageSize);
+    bytes.position(7);
+    BitmapRenderer.render(matrix, cellSize, margin, bytes, stride, (byte) 1, (byte) 2);
+    Assertions.assertEquals(bytes.capacity(), bytes.position() );
+    for (int y = 0; y < imageSize; y++) {
+      for (int x = 0; x < stride; x++) {
+        int expected = x >= imageSize ? 0 : isDark(matrix, cellSize, margin, x, y) ? 1 : 2;
+        Assertions.assertEquals(expected, bytes.get(7 + y * stride + x), "x: " + x + " /y: " + y);
+      }
+    }
+
+    // 1bpp
+    int bitsStride = (imageSize + 7) / 8 + 2;
+    for (boolean darkBit : new boolean[]{true, false}) {
+      ByteBuffer bits = ByteBuffer.allocateDirect(bitsStride * imageSize);
+      BitmapRenderer.renderBits(matrix, cellSize, margin, bits, bitsStride, darkBit);
+      Assertions.assertFalse(bits.hasRemaining() );
+      for (int y = 0; y < imageSize; y++) {
+        for (int x = 0; x < bitsStride * 8; x++) {
+          int bit = (bits.get(y * bitsStride + (x >>> 3) ) >>> (7 - (x & 7) ) ) & 1;
+          int expected = x >= imageSize ? 0 : isDark(matrix, cellSize, margin, x, y) == darkBit ? 1 : 0;
+          Assertions.assertEquals(expected, bit, "x: " + x + " /y: " + y);
+        }
+      }
+    }
+
+    // モジュール
+    int rowBytes = (matrix.getModuleCount() + 7) / 8;
+    ByteBuffer modules = ByteBuffer.allocate(rowBytes * matrix.getModuleCount() );
+    BitmapRenderer.writeModules(matrix, modules);
+    Assertions.assertFalse(modules.hasRemaining() );
+    for (int row = 0; row < matrix.getModuleCount(); row++) {
+      for (int col = 0; col < rowBytes * 8; col++) {
+        int bit = (modules.get(row * rowBytes + (col >>> 3) ) >>> (7 - (col & 7) ) ) & 1;
+        Assertions.assertEquals(col < matrix.getModuleCount() && matrix.isDark(row, col) ? 1 : 0, bit);
+      }
+    }
+
+    Assertions.assertThrows(BufferOverflowException.class, () ->
+        BitmapRenderer.renderBits(matrix, cellSize, margin, ByteBuffer.allocate(100), bitsStride, true) );
+  }
+
+  private static boolean isDark(BitMatrix matrix, int cellSize, int margin, int x, int y) {
+    int imageSize = matrix.getModuleCount() * cellSize + margin * 2;
+    return margin <= x && x < imageSize - margin
+        && margin <= y && y < imageSize - margin
+        && matrix.isDark( (y - margin) / cellSize, (x - margin) / cellSize);
+  }
+}
@@ -0,0 +1,41 @@
+package com.d_project.qrcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class DataURIWriterTest {
+
+  @Test
+  public void test() throws Exception {
+    BitMatrix matrix = QRCode.getMinimumQRCode("https://example.com/mail",
+        ErrorCorrectionLevel.M).toBitMatrix();
+
+    ByteArrayOutputStream gif = new ByteArrayOutputStream();
+    GIFWriter.write(matrix, 4, 16, gif);
+    StringBuilder out = new StringBuilder("<img src=\"");
+    DataURIWriter.writeGIF(matrix, 4, 16, out);
+    out.append("\"/>");
+    Assertions.assertEquals("<img src=\"data:image/gif;base64,"
+        + Base64.getEncoder().encodeToString(gif.toByteArray() ) + "\"/>", out.toString() );
+
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    PNGWriter.write(matrix, 3, 5, png);
+    StringWriter writer = new StringWriter();
+    DataURIWriter.writePNG(matrix, 3, 5, writer);
+    Assertions.assertEquals("data:image/png;base64,"
+        + Base64.getEncoder().encodeToString(png.toByteArray() ), writer.toString() );
+
+    StringBuilder svg = new StringBuilder();
+    SVGWriter.write(matrix, 2, 8, svg);
+    StringBuilder uri = new StringBuilder();
+    DataURIWriter.writeSVG(matrix, 2, 8, uri);
+    Assertions.assertEquals("data:image/svg+xml;base64,"
+        + Base64.getEncoder().encodeToString(svg.toString().getBytes(StandardCharsets.UTF_8) ),
+        uri.toString() );
+  }
+}
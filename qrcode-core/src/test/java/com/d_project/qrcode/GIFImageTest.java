@@ -0,0 +1,209 @@
+package com.d_project.qrcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+
+public class GIFImageTest {
+
+  @Test
+  public void test() throws Exception {
+
+    GIFImage g = new GIFImage(2, 2);
+    g.setPixel(0, 0, 1);
+    g.setPixel(0, 1, 0);
+    g.setPixel(1, 0, 0);
+    g.setPixel(1, 1, 1);
+
+    ByteArrayOutputStream b = new ByteArrayOutputStream();
+    g.write(b);
+    byte[] raw = b.toByteArray();
+    for (int i = 0; i < raw.length; i++) {
+      if (i > 0) {
+        System.out.print(",");
+      }
+      System.out.print(raw[i] & 0xff);
+    }
+    System.out.println();
+  }
+
+  @Test
+  public void test2() throws Exception {
+    GIFImage g = new GIFImage(2, 2);
+    g.setPixel(0, 0, 1);
+    g.setPixel(0, 1, 0);
+    g.setPixel(1, 0, 0);
+    g.setPixel(1, 1, 1);
+
+    ByteArrayOutputStream b = new ByteArrayOutputStream();
+    g.write(b);
+    Assertions.assertArrayEquals(new byte[]{71,73,70,56,55,97,2,0,2,0,-128,0,0,0,0,0,-1,-1,-1,
+        44,0,0,0,0,2,0,2,0,0,2,3,12,16,5,0,59}, b.toByteArray() );
+
+    QRCode qr = QRCode.getMinimumQRCode("https://example.com/", ErrorCorrectionLevel.M);
+    b.reset();
+    qr.createGIFImage(4, 8).write(b);
+    assertCRC(960, 0x511059fL, b.toByteArray() );
+
+    GIFImage r = new GIFImage(64, 64);
+    long seed = 12345;
+    for (int y = 0; y < 64; y++) {
+      for (int x = 0; x < 64; x++) {
+        seed = seed * 6364136223846793005L + 1442695040888963407L;
+        r.setPixel(x, y, (int) ( (seed >>> 33) & 1) );
+      }
+    }
+    b.reset();
+    r.write(b);
+    assertCRC(692, 0xe885add0L, b.toByteArray() );
+  }
+
+  @Test
+  public void testWriteMatrix() throws Exception {
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    for (String text : new String[]{"https://example.com/", "0123456789".repeat(20)}) {
+      QRCode qr = QRCode.getMinimumQRCode(text, ErrorCorrectionLevel.H);
+      BitMatrix matrix = qr.toBitMatrix();
+      for (int cellSize = 1; cellSize <= 5; cellSize += 2) {
+        for (int margin : new int[]{0, 3, 16}) {
+          expected.reset();
+          actual.reset();
+          qr.createGIFImage(cellSize, margin).write(expected);
+          GIFImage.write(matrix, cellSize, margin, actual);
+          Assertions.assertArrayEquals(expected.toByteArray(), actual.toByteArray() );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testTableReset() throws Exception {
+    // 乱数のイメージで LZW の表を何度も一杯にする
+    int width = 256;
+    int height = 256;
+    int[] pixels = new int[width * height];
+    GIFImage image = new GIFImage(width, height);
+    long seed = 42;
+    for (int i = 0; i < pixels.length; i++) {
+      seed = seed * 6364136223846793005L + 1442695040888963407L;
+      pixels[i] = (int) ( (seed >>> 33) & 1);
+      image.setPixel(i % width, i / width, pixels[i]);
+    }
+    ByteArrayOutputStream b = new ByteArrayOutputStream();
+    image.write(b);
+
+    int[] clearCount = new int[1];
+    Assertions.assertArrayEquals(pixels, decode(b.toByteArray(), width, height, clearCount) );
+    // 先頭以外のクリアコード
+    Assertions.assertTrue(clearCount[0] > 1, "clear codes: " + clearCount[0]);
+  }
+
+  /**
+   * 2色の GIF (グローバルカラーテーブルあり、拡張なし) を展開する。
+   */
+  static int[] decode(byte[] gif, int width, int height, int[] clearCount) {
+    Assertions.assertEquals("GIF87a", new String(gif, 0, 6, StandardCharsets.US_ASCII) );
+    int p = 6 + 7 + 2 * 3;
+    Assertions.assertEquals(',', gif[p]);
+    Assertions.assertEquals(width, (gif[p + 5] & 0xff) | (gif[p + 6] & 0xff) << 8);
+    Assertions.assertEquals(height, (gif[p + 7] & 0xff) | (gif[p + 8] & 0xff) << 8);
+    p += 10;
+    int minCodeSize = gif[p++];
+
+    // サブブロックを連結
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    while (gif[p] != 0) {
+      int n = gif[p] & 0xff;
+      data.write(gif, p + 1, n);
+      p += n + 1;
+    }
+    Assertions.assertEquals(';', gif[p + 1]);
+    Assertions.assertEquals(p + 2, gif.length);
+    byte[] bytes = data.toByteArray();
+
+    int clearCode = 1 << minCodeSize;
+    int endCode = clearCode + 1;
+    int[] prefix = new int[4096];
+    int[] suffix = new int[4096];
+    int[] stack = new int[4096];
+    int[] pixels = new int[width * height];
+    int count = 0;
+
+    int codeSize = minCodeSize + 1;
+    int nextCode = endCode + 1;
+    int previous = -1;
+    int first = 0;
+    int bitBuffer = 0;
+    int bits = 0;
+    int index = 0;
+    while (true) {
+      while (bits < codeSize) {
+        Assertions.assertTrue(index < bytes.length, "no end code");
+        bitBuffer |= (bytes[index++] & 0xff) << bits;
+        bits += 8;
+      }
+      int code = bitBuffer & ( (1 << codeSize) - 1);
+      bitBuffer >>>= codeSize;
+      bits -= codeSize;
+
+      if (code == clearCode) {
+        clearCount[0]++;
+        codeSize = minCodeSize + 1;
+        nextCode = endCode + 1;
+        previous = -1;
+        continue;
+      }
+      if (code == endCode) {
+        break;
+      }
+
+      int sp = 0;
+      int c = code;
+      if (previous == -1) {
+        Assertions.assertTrue(code < clearCode);
+        pixels[count++] = code;
+        previous = code;
+        first = code;
+        continue;
+      }
+      if (code >= nextCode) {
+        Assertions.assertEquals(nextCode, code);
+        stack[sp++] = first;
+        c = previous;
+      }
+      while (c > endCode) {
+        stack[sp++] = suffix[c];
+        c = prefix[c];
+      }
+      first = c;
+      stack[sp++] = c;
+      while (sp > 0) {
+        pixels[count++] = stack[--sp];
+      }
+
+      if (nextCode < 4096) {
+        prefix[nextCode] = previous;
+        suffix[nextCode] = first;
+        nextCode++;
+        if (nextCode == 1 << codeSize && codeSize < 12) {
+          codeSize++;
+        }
+      }
+      previous = code;
+    }
+    Assertions.assertEquals(pixels.length, count);
+    return pixels;
+  }
+
+  private static void assertCRC(int length, long expected, byte[] actual) {
+    CRC32 crc = new CRC32();
+    crc.update(actual);
+    Assertions.assertEquals(length, actual.length);
+    Assertions.assertEquals(expected, crc.getValue() );
+  }
+}
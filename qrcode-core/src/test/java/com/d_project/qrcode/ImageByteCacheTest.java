@@ -0,0 +1,105 @@
+package com.d_project.qrcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ImageByteCacheTest {
+
+  @Test
+  public void test() throws Exception {
+    QRCode qr = QRCode.getMinimumQRCode("ImageByteCache", ErrorCorrectionLevel.M);
+    BitMatrix matrix = qr.toBitMatrix();
+
+    ImageByteCache cache = new ImageByteCache(4 * 1024, 1024);
+
+    ByteArrayOutputStream gif = new ByteArrayOutputStream();
+    qr.createGIFImage(2, 4).write(gif);
+
+    ImageByteCache.Key key = new ImageByteCache.Key(matrix, "gif", 2, 4, 0x000000, 0xffffff);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    WritableByteChannel channel = Channels.newChannel(out);
+
+    Assertions.assertFalse(cache.writeTo(key, channel) );
+    Assertions.assertTrue(cache.put(key, gif.toByteArray() ) );
+    Assertions.assertTrue(cache.writeTo(key, channel) );
+    Assertions.assertArrayEquals(gif.toByteArray(), out.toByteArray() );
+
+    for (int i = 0; i < 16; i++) {
+      cache.put(new ImageByteCache.Key(matrix, "gif", 2, i + 5, 0, 0), new byte[512]);
+    }
+    Assertions.assertFalse(cache.contains(key) );
+    Assertions.assertTrue(cache.getUsedBytes() <= 4 * 1024);
+    Assertions.assertEquals(17 - cache.size(), cache.getEvictionCount() );
+  }
+
+  @Test
+  public void testSlowChannel() throws Exception {
+    BitMatrix matrix = QRCode.getMinimumQRCode("ImageByteCache", ErrorCorrectionLevel.M).toBitMatrix();
+    ImageByteCache cache = new ImageByteCache(2 * 1024, 1024);
+    byte[] data = new byte[512];
+    Arrays.fill(data, (byte) 7);
+    ImageByteCache.Key a = new ImageByteCache.Key(matrix, "gif", 1, 0, 0, 0);
+    Assertions.assertTrue(cache.put(a, data) );
+
+    CountDownLatch writing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    WritableByteChannel slow = new WritableByteChannel() {
+      @Override
+      public int write(ByteBuffer src) {
+        writing.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+        int n = src.remaining();
+        while (src.hasRemaining() ) {
+          out.write(src.get() );
+        }
+        return n;
+      }
+
+      @Override
+      public boolean isOpen() {
+        return true;
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+
+    CompletableFuture<Boolean> reader = CompletableFuture.supplyAsync(() -> {
+      try {
+        return cache.writeTo(a, slow);
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+    Assertions.assertTrue(writing.await(10, TimeUnit.SECONDS) );
+
+    // 書き込み中でも追加できるが、書き込み中のスラブは再利用されない
+    Assertions.assertTrue(cache.put(new ImageByteCache.Key(matrix, "gif", 2, 0, 0, 0), new byte[512]) );
+    Assertions.assertTrue(cache.put(new ImageByteCache.Key(matrix, "gif", 3, 0, 0, 0), new byte[600]) );
+    ImageByteCache.Key d = new ImageByteCache.Key(matrix, "gif", 4, 0, 0, 0);
+    Assertions.assertFalse(cache.put(d, new byte[600]) );
+    Assertions.assertTrue(cache.contains(a) );
+
+    release.countDown();
+    Assertions.assertTrue(reader.get(10, TimeUnit.SECONDS) );
+    Assertions.assertArrayEquals(data, out.toByteArray() );
+
+    Assertions.assertTrue(cache.put(d, new byte[600]) );
+    Assertions.assertFalse(cache.contains(a) );
+  }
+}
@@ -0,0 +1,149 @@
+package com.d_project.qrcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+public class MappedSymbolStoreTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  public void test1() throws Exception {
+    BitMatrix expected;
+    try (MappedSymbolStore store = MappedSymbolStore.open(dir, 64 * 1024, 4) ) {
+      expected = store.make(newQRCode("https://example.com/") );
+      store.putBytes(new byte[]{1, 2}, new byte[]{3, 4, 5});
+      Assertions.assertEquals(expected, store.make(newQRCode("https://example.com/") ) );
+      Assertions.assertEquals(1, store.getHitCount() );
+    }
+
+    try (MappedSymbolStore store = MappedSymbolStore.openReadOnly(dir) ) {
+      Assertions.assertEquals(2, store.size() );
+      Assertions.assertEquals(expected, store.make(newQRCode("https://example.com/") ) );
+      Assertions.assertEquals(1, store.getHitCount() );
+      Assertions.assertArrayEquals(new byte[]{3, 4, 5}, store.getBytes(new byte[]{1, 2}) );
+      Assertions.assertNull(store.getBytes(new byte[]{1}) );
+    }
+  }
+
+  @Test
+  public void test2() throws Exception {
+    try (MappedSymbolStore store = MappedSymbolStore.open(dir, 64 * 1024, 4) ) {
+      store.make(newQRCode("A") );
+      store.make(newQRCode("B") );
+    }
+
+    // 2番目のレコード(ヘッダ 8 + 1番目のレコード 126 byte の後)を壊す
+    Path segment;
+    try (Stream<Path> files = Files.list(dir) ) {
+      segment = files.findFirst().orElseThrow();
+    }
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE) ) {
+      channel.write(java.nio.ByteBuffer.wrap(new byte[]{0x7f}), 8 + 126 + 20);
+    }
+
+    try (MappedSymbolStore store = MappedSymbolStore.open(dir, 64 * 1024, 4) ) {
+      Assertions.assertEquals(1, store.size() );
+      store.make(newQRCode("B") );
+      Assertions.assertEquals(2, store.size() );
+    }
+  }
+
+  @Test
+  public void test3() throws Exception {
+    try (MappedSymbolStore store = MappedSymbolStore.open(dir, 1024, 2) ) {
+      for (int i = 0; i < 100; i++) {
+        store.make(newQRCode("ID" + i) );
+        store.make(newQRCode("ID0") );
+      }
+      Assertions.assertTrue(store.size() < 100);
+      store.make(newQRCode("ID0") );
+      Assertions.assertEquals(101, store.getHitCount() );
+    }
+    try (Stream<Path> files = Files.list(dir) ) {
+      Assertions.assertEquals(2, files.count() );
+    }
+  }
+
+  @Test
+  public void test4() throws Exception {
+    try (MappedSymbolStore store = MappedSymbolStore.open(dir, 1024, 4) ) {
+      store.make(newQRCode("A") );
+    }
+
+    // ヘッダを書き込む前に異常終了したセグメント
+    Path broken = dir.resolve("00000002.seg");
+    Files.write(broken, new byte[1024]);
+    Files.write(dir.resolve("00000003.seg"), new byte[3]);
+
+    try (MappedSymbolStore store = MappedSymbolStore.open(dir, 1024, 4) ) {
+      Assertions.assertEquals(1, store.size() );
+      Assertions.assertFalse(Files.exists(broken) );
+      // 新しいセグメントを作成させる
+      for (int i = 0; i < 20; i++) {
+        store.make(newQRCode("ID" + i) );
+      }
+      Assertions.assertEquals(21, store.size() );
+    }
+    Assertions.assertTrue(Files.exists(dir.resolve("00000004.seg") ) );
+
+    try (MappedSymbolStore store = MappedSymbolStore.open(dir, 1024, 4) ) {
+      Assertions.assertEquals(21, store.size() );
+    }
+  }
+
+  @Test
+  public void test5() throws Exception {
+    // 1 セグメントに 32 レコード
+    try (MappedSymbolStore store = MappedSymbolStore.open(dir, 4096, 2) ) {
+      for (int i = 0; i < 30; i++) {
+        store.make(newQRCode("HOT" + i) );
+      }
+    }
+
+    // セグメントを小さくして開き直すと、参照済みのレコードは 1 セグメントの空きに収まらない
+    try (MappedSymbolStore store = MappedSymbolStore.open(dir, 1024, 6) ) {
+      for (int i = 0; i < 30; i++) {
+        store.make(newQRCode("HOT" + i) );
+      }
+      Assertions.assertEquals(30, store.getHitCount() );
+
+      for (int i = 0; i < 48; i++) {
+        store.make(newQRCode("COLD" + i) );
+      }
+      for (int i = 0; i < 30; i++) {
+        store.make(newQRCode("HOT" + i) );
+      }
+      Assertions.assertEquals(60, store.getHitCount() );
+    }
+  }
+
+  @Test
+  public void testClosed() throws Exception {
+    MappedSymbolStore store = MappedSymbolStore.open(dir, 1024, 2);
+    store.make(newQRCode("A") );
+    store.close();
+    store.close();
+    Assertions.assertThrows(IllegalStateException.class, () -> store.make(newQRCode("A") ) );
+    Assertions.assertThrows(IllegalStateException.class, () -> store.getBytes(new byte[]{1}) );
+    Assertions.assertThrows(IllegalStateException.class,
+        () -> store.putBytes(new byte[]{1}, new byte[]{2}) );
+    Assertions.assertThrows(IllegalStateException.class, store::flush);
+  }
+
+  private static QRCode newQRCode(String data) {
+    QRCode qr = new QRCode();
+    qr.setTypeNumber(2);
+    qr.setErrorCorrectionLevel(ErrorCorrectionLevel.L);
+    qr.addData(data);
+    return qr;
+  }
+}
@@ -0,0 +1,50 @@
+package com.d_project.qrcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class MultiResolutionWriterTest {
+
+  @Test
+  public void test() throws Exception {
+    BitMatrix matrix = QRCode.getMinimumQRCode("https://example.com/cdn",
+        ErrorCorrectionLevel.M).toBitMatrix();
+    int[][] sizes = {{1, 4}, {2, 8}, {4, 16}, {4, 16}, {8, 0}};
+    String[] formats = {"png", "gif", "png", "gif", "png"};
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      for (boolean parallel : new boolean[]{false, true}) {
+        MultiResolutionWriter writer = new MultiResolutionWriter(matrix);
+        ByteArrayOutputStream[] outs = new ByteArrayOutputStream[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+          outs[i] = new ByteArrayOutputStream();
+          writer.add(sizes[i][0], sizes[i][1], formats[i], outs[i]);
+        }
+        if (parallel) {
+          writer.setParallel(executor);
+        }
+        writer.write();
+
+        for (int i = 0; i < sizes.length; i++) {
+          ByteArrayOutputStream expected = new ByteArrayOutputStream();
+          if ("png".equals(formats[i]) ) {
+            PNGWriter.write(matrix, sizes[i][0], sizes[i][1], expected);
+          } else {
+            GIFWriter.write(matrix, sizes[i][0], sizes[i][1], expected);
+          }
+          Assertions.assertArrayEquals(expected.toByteArray(), outs[i].toByteArray(), formats[i] + i);
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    Assertions.assertThrows(IllegalArgumentException.class, () ->
+        new MultiResolutionWriter(matrix).add(1, 0, "bmp", new ByteArrayOutputStream() ) );
+  }
+}
@@ -0,0 +1,139 @@
+package com.d_project.qrcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Inflater;
+
+public class PDFWriterTest {
+
+  @Test
+  public void test() throws Exception {
+    BitMatrix matrix = QRCode.getMinimumQRCode("https://example.com/pdf",
+        ErrorCorrectionLevel.M).toBitMatrix();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PDFWriter pdf = new PDFWriter(out, 200, 300);
+    pdf.beginPage();
+    pdf.drawSymbol(matrix, 10, 20.5, 1.5);
+    pdf.endPage();
+    pdf.finish();
+    String s = new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+
+    assertXref(s);
+    List<String> contents = getContents(s);
+    Assertions.assertEquals(1, contents.size() );
+
+    // 矩形が暗モジュールと一致することを確認
+    int moduleCount = matrix.getModuleCount();
+    boolean[][] dark = new boolean[moduleCount][moduleCount];
+    Matcher m = Pattern.compile("([-0-9.]+) ([-0-9.]+) ([-0-9.]+) ([-0-9.]+) re").matcher(contents.get(0) );
+    while (m.find() ) {
+      double x = Double.parseDouble(m.group(1) );
+      double y = Double.parseDouble(m.group(2) );
+      double w = Double.parseDouble(m.group(3) );
+      Assertions.assertEquals(1.5, Double.parseDouble(m.group(4) ) );
+      int row = (int) Math.round( (300 - 20.5 - y) / 1.5) - 1;
+      int col = (int) Math.round( (x - 10) / 1.5);
+      for (int i = 0; i < Math.round(w / 1.5); i++) {
+        Assertions.assertFalse(dark[row][col + i]);
+        dark[row][col + i] = true;
+      }
+    }
+    for (int row = 0; row < moduleCount; row++) {
+      for (int col = 0; col < moduleCount; col++) {
+        Assertions.assertEquals(matrix.isDark(row, col), dark[row][col]);
+      }
+    }
+    Assertions.assertTrue(contents.get(0).startsWith("0 g\n") );
+    Assertions.assertTrue(contents.get(0).endsWith("f\n") );
+  }
+
+  @Test
+  public void testSheets() throws Exception {
+    List<BitMatrix> matrices = new ArrayList<>();
+    for (int i = 0; i < 7; i++) {
+      matrices.add(QRCode.getMinimumQRCode("SHEET-" + i, ErrorCorrectionLevel.H).toBitMatrix() );
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PDFWriter pdf = new PDFWriter(out, 595, 842);
+    pdf.writeSheets(matrices.iterator(), 2, 2, 120, 3);
+    pdf.finish();
+    String s = new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+
+    assertXref(s);
+    Assertions.assertTrue(s.contains("/Count 2 >>") );
+    List<String> contents = getContents(s);
+    Assertions.assertEquals(2, contents.size() );
+    Assertions.assertEquals(4, count(contents.get(0), "\nf\n") );
+    Assertions.assertEquals(3, count(contents.get(1), "\nf\n") );
+
+    Assertions.assertThrows(IllegalArgumentException.class, () ->
+        new PDFWriter(new ByteArrayOutputStream(), 595, 842).writeSheets(matrices.iterator(), 2, 2, 50, 3) );
+
+    // 21 モジュール * 3pt。クワイエットゾーン(両側 4 モジュール)を含めて 87pt
+    Assertions.assertThrows(IllegalArgumentException.class, () ->
+        new PDFWriter(new ByteArrayOutputStream(), 595, 842).writeSheets(matrices.iterator(), 2, 2, 63, 3) );
+    Assertions.assertThrows(IllegalArgumentException.class, () ->
+        new PDFWriter(new ByteArrayOutputStream(), 595, 842).writeSheets(matrices.iterator(), 2, 2, 86.9, 3) );
+    new PDFWriter(new ByteArrayOutputStream(), 595, 842).writeSheets(matrices.iterator(), 2, 2, 87, 3);
+  }
+
+  private static int count(String s, String sub) {
+    int n = 0;
+    for (int i = s.indexOf(sub); i != -1; i = s.indexOf(sub, i + 1) ) {
+      n++;
+    }
+    return n;
+  }
+
+  /**
+   * 相互参照表の各位置がオブジェクトの開始であることを確認する。
+   */
+  private static void assertXref(String s) {
+    Assertions.assertTrue(s.startsWith("%PDF-1.4\n") );
+    Assertions.assertTrue(s.endsWith("%%EOF\n") );
+    int startxref = s.lastIndexOf("startxref\n");
+    int xref = Integer.parseInt(s.substring(startxref + 10, s.indexOf('\n', startxref + 10) ) );
+    Assertions.assertTrue(s.startsWith("xref\n0 ", xref) );
+    int size = Integer.parseInt(s.substring(xref + 7, s.indexOf('\n', xref + 7) ) );
+    int entries = s.indexOf('\n', xref + 7) + 1;
+    Assertions.assertEquals("0000000000 65535 f\r\n", s.substring(entries, entries + 20) );
+    for (int i = 1; i < size; i++) {
+      String entry = s.substring(entries + i * 20, entries + (i + 1) * 20);
+      Assertions.assertTrue(entry.endsWith(" 00000 n\r\n"), entry);
+      int offset = Integer.parseInt(entry.substring(0, 10) );
+      Assertions.assertTrue(s.startsWith(i + " 0 obj\n", offset), "object " + i);
+    }
+    Assertions.assertTrue(s.contains("/Size " + size + " /Root 1 0 R") );
+  }
+
+  private static List<String> getContents(String s) throws Exception {
+    List<String> contents = new ArrayList<>();
+    Matcher m = Pattern.compile("<< /Length (\\d+) 0 R /Filter /FlateDecode >>\nstream\n").matcher(s);
+    while (m.find() ) {
+      Matcher len = Pattern.compile("\n" + m.group(1) + " 0 obj\n(\\d+)\nendobj").matcher(s);
+      Assertions.assertTrue(len.find() );
+      int length = Integer.parseInt(len.group(1) );
+      Assertions.assertTrue(s.startsWith("\nendstream", m.end() + length) );
+
+      Inflater inflater = new Inflater();
+      inflater.setInput(s.substring(m.end(), m.end() + length).getBytes(StandardCharsets.ISO_8859_1) );
+      ByteArrayOutputStream data = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      while (!inflater.finished() ) {
+        int n = inflater.inflate(buffer);
+        data.write(buffer, 0, n);
+      }
+      inflater.end();
+      contents.add(data.toString(StandardCharsets.US_ASCII) );
+    }
+    return contents;
+  }
+}
@@ -0,0 +1,144 @@
+package com.d_project.qrcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+
+public class PNGWriterTest {
+
+  @Test
+  public void test1() throws Exception {
+    QRCode qr = QRCode.getMinimumQRCode("https://example.com/png", ErrorCorrectionLevel.M);
+    BitMatrix matrix = qr.toBitMatrix();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PNGWriter.write(matrix, 3, 5, out);
+    assertPixels(matrix, 3, 5, 0, out.toByteArray() );
+  }
+
+  @Test
+  public void test2() throws Exception {
+    QRCode qr = QRCode.getMinimumQRCode("palette", ErrorCorrectionLevel.H);
+    BitMatrix matrix = qr.toBitMatrix();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PNGWriter.write(matrix, 2, 4, 0x000080, 0xffffe0, out);
+    assertPixels(matrix, 2, 4, 3, out.toByteArray() );
+  }
+
+  @Test
+  public void test3() throws Exception {
+    QRCode qr = new QRCode();
+    qr.setTypeNumber(10);
+    qr.addData("parallel");
+    qr.make();
+    BitMatrix matrix = qr.toBitMatrix();
+    int cellSize = 20;
+    int margin = 40;
+    int imageSize = matrix.getModuleCount() * cellSize + margin * 2;
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      byte[][] pngs = new byte[2][];
+      int[] parallelisms = {1, 4};
+      for (int i = 0; i < parallelisms.length; i++) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PNGWriter writer = new PNGWriter(out, imageSize, imageSize, 0x000000, 0xffffff);
+        writer.setParallel(executor, parallelisms[i], 100);
+        writer.writeMatrix(matrix, cellSize, margin);
+        writer.finish();
+        pngs[i] = out.toByteArray();
+        assertPixels(matrix, cellSize, margin, 0, pngs[i]);
+      }
+      Assertions.assertArrayEquals(pngs[0], pngs[1]);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testIOException() throws Exception {
+    BitMatrix matrix = QRCode.getMinimumQRCode("io", ErrorCorrectionLevel.M).toBitMatrix();
+    OutputStream broken = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("broken");
+      }
+    };
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      for (boolean parallel : new boolean[]{false, true}) {
+        PNGWriter writer = new PNGWriter(broken, 100, 100, 0x000000, 0xffffff);
+        if (parallel) {
+          writer.setParallel(executor, 2, 10);
+        }
+        Assertions.assertThrows(IOException.class, () -> {
+          writer.writeMatrix(matrix, 3, 5);
+          writer.finish();
+        });
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * チャンクの CRC を検査し、IDAT を展開して各ピクセルを比較する。
+   */
+  static void assertPixels(BitMatrix matrix, int cellSize, int margin, int colorType, byte[] png)
+      throws Exception {
+    int imageSize = matrix.getModuleCount() * cellSize + margin * 2;
+    ByteBuffer buffer = ByteBuffer.wrap(png);
+    buffer.position(8);
+
+    ByteArrayOutputStream idat = new ByteArrayOutputStream();
+    String type;
+    do {
+      int length = buffer.getInt();
+      byte[] data = new byte[4 + length];
+      buffer.get(data);
+      CRC32 crc = new CRC32();
+      crc.update(data);
+      Assertions.assertEquals( (int) crc.getValue(), buffer.getInt() );
+
+      type = new String(data, 0, 4, StandardCharsets.ISO_8859_1);
+      if (type.equals("IHDR") ) {
+        ByteBuffer ihdr = ByteBuffer.wrap(data, 4, length);
+        Assertions.assertEquals(imageSize, ihdr.getInt() );
+        Assertions.assertEquals(imageSize, ihdr.getInt() );
+        Assertions.assertEquals(1, ihdr.get() );
+        Assertions.assertEquals(colorType, ihdr.get() );
+      } else if (type.equals("IDAT") ) {
+        idat.write(data, 4, length);
+      }
+    } while (!type.equals("IEND") );
+
+    int stride = (imageSize + 7) / 8;
+    byte[] raw = new byte[(stride + 1) * imageSize];
+    Inflater inflater = new Inflater();
+    inflater.setInput(idat.toByteArray() );
+    Assertions.assertEquals(raw.length, inflater.inflate(raw) );
+    Assertions.assertTrue(inflater.finished() );
+
+    for (int y = 0; y < imageSize; y++) {
+      Assertions.assertEquals(0, raw[y * (stride + 1)]);
+      for (int x = 0; x < imageSize; x++) {
+        boolean dark = margin <= x && x < imageSize - margin
+            && margin <= y && y < imageSize - margin
+            && matrix.isDark( (y - margin) / cellSize, (x - margin) / cellSize);
+        int bit = (raw[y * (stride + 1) + 1 + x / 8] >>> (7 - x % 8) ) & 1;
+        // グレースケールは 0 が黒、パレットは 1 が暗色
+        Assertions.assertEquals(dark, colorType == 0 ? bit == 0 : bit == 1);
+      }
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package com.d_project.qrcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class QRCapacityTest {
+
+  private static final int[] LEVELS = {
+      ErrorCorrectionLevel.L, ErrorCorrectionLevel.M, ErrorCorrectionLevel.Q, ErrorCorrectionLevel.H
+  };
+
+  @Test
+  public void testMinimumTypeNumber() {
+    String[] samples = {
+        "0123456789".repeat(30),
+        "HTTPS://EXAMPLE.COM/".repeat(20),
+        "https://example.com/?q=".repeat(40),
+    };
+    for (String data : samples) {
+      for (int ecl : LEVELS) {
+        QRCapacity capacity = QRCapacity.plan(data, ecl, 40);
+        Assertions.assertTrue(capacity.fits() );
+        Assertions.assertEquals(QRUtil.getMode(data), capacity.getModes()[0]);
+
+        // make() で収まる最小の型番と一致する
+        int type = capacity.getTypeNumber();
+        QRData[] qrData = {QRUtil.createQRData(data, capacity.getModes()[0])};
+        QRCode.createData(type, ecl, qrData);
+        if (type > 1) {
+          int previous = type - 1;
+          Assertions.assertThrows(IllegalArgumentException.class,
+              () -> QRCode.createData(previous, ecl, qrData) );
+        }
+
+        BitBuffer buffer = new BitBuffer();
+        buffer.put(qrData[0].getMode(), 4);
+        buffer.put(qrData[0].getLength(), qrData[0].getLengthInBits(type) );
+        qrData[0].write(buffer);
+        Assertions.assertEquals(buffer.getLengthInBits(), capacity.getLengthInBits() );
+        Assertions.assertEquals(capacity.getCapacityInBits() - buffer.getLengthInBits(),
+            capacity.getRemainingBits() );
+      }
+    }
+  }
+
+  @Test
+  public void testSegments() {
+    String[] data = {"TKT-", "000123456", "/a"};
+    QRCapacity capacity = QRCapacity.plan(data, null, ErrorCorrectionLevel.H, 10);
+    Assertions.assertArrayEquals(new int[] {Mode.MODE_ALPHA_NUM, Mode.MODE_NUMBER,
+        Mode.MODE_8BIT_BYTE}, capacity.getModes() );
+    // (4 + 9 + 22) + (4 + 10 + 30) + (4 + 8 + 16)
+    Assertions.assertEquals(107, capacity.getLengthInBits() );
+    Assertions.assertEquals(2, capacity.getTypeNumber() );
+
+    QRCode expected = new QRCode();
+    expected.setTypeNumber(2);
+    expected.setErrorCorrectionLevel(ErrorCorrectionLevel.H);
+    expected.addData("TKT-", Mode.MODE_ALPHA_NUM);
+    expected.addData("000123456", Mode.MODE_NUMBER);
+    expected.addData("/a", Mode.MODE_8BIT_BYTE);
+    expected.make();
+    Assertions.assertEquals(expected.toBitMatrix(), capacity.make(data).toBitMatrix() );
+  }
+
+  @Test
+  public void testOverflow() {
+    String data = "x".repeat(300);
+    QRCapacity capacity = QRCapacity.plan(data, Mode.MODE_8BIT_BYTE, ErrorCorrectionLevel.H, 10);
+    Assertions.assertFalse(capacity.fits() );
+    Assertions.assertEquals(10, capacity.getTypeNumber() );
+    Assertions.assertEquals(4 + 16 + 8 * 300, capacity.getLengthInBits() );
+    Assertions.assertTrue(capacity.getRemainingBits() < 0);
+    Assertions.assertThrows(IllegalStateException.class, () -> capacity.make(data) );
+
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> QRCapacity.plan(data, ErrorCorrectionLevel.H, 41) );
+  }
+
+  @Test
+  public void testBoost() {
+    for (String data : new String[] {"12345", "HELLO WORLD", "https://example.com/item/42"}) {
+      for (int l = 0; l < LEVELS.length; l++) {
+        QRCapacity capacity = QRCapacity.plan(data, LEVELS[l], 10);
+        QRCapacity boosted = capacity.boostErrorCorrectionLevel();
+        Assertions.assertEquals(capacity.getTypeNumber(), boosted.getTypeNumber() );
+
+        // 同じ型番で収まる最も高い誤り訂正レベル
+        QRData[] qrData = {QRUtil.createQRData(data, QRUtil.getMode(data) )};
+        int expected = LEVELS[l];
+        for (int h = l + 1; h < LEVELS.length; h++) {
+          try {
+            QRCode.createData(capacity.getTypeNumber(), LEVELS[h], qrData);
+            expected = LEVELS[h];
+          } catch (IllegalArgumentException e) {
+            break;
+          }
+        }
+        Assertions.assertEquals(expected, boosted.getErrorCorrectionLevel() );
+        Assertions.assertTrue(boosted.fits() );
+      }
+    }
+
+    // 4 + 8 + 8 * 26 = 220 ビット (型番 2-M のデータ容量は 224 ビット)
+    String data = "https://example.com/item/4";
+    QRCode qr = QRCode.getMinimumQRCode(data, ErrorCorrectionLevel.L, true);
+    QRCode plain = QRCode.getMinimumQRCode(data, ErrorCorrectionLevel.L);
+    Assertions.assertEquals(plain.getTypeNumber(), qr.getTypeNumber() );
+    Assertions.assertEquals(ErrorCorrectionLevel.M, qr.getErrorCorrectionLevel() );
+    Assertions.assertEquals(plain.toBitMatrix(),
+        QRCode.getMinimumQRCode(data, ErrorCorrectionLevel.L, false).toBitMatrix() );
+  }
+
+  @Test
+  public void testMaxTypeNumber() {
+    String data = "x".repeat(300);
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> QRCode.getMinimumQRCode(data, ErrorCorrectionLevel.L, true) );
+    QRCode qr = QRCode.getMinimumQRCode(data, ErrorCorrectionLevel.L, 40, true);
+    QRCapacity capacity = QRCapacity.plan(data, ErrorCorrectionLevel.L, 40);
+    Assertions.assertEquals(capacity.getTypeNumber(), qr.getTypeNumber() );
+    Assertions.assertEquals(capacity.boostErrorCorrectionLevel().getErrorCorrectionLevel(),
+        qr.getErrorCorrectionLevel() );
+  }
+}
@@ -0,0 +1,75 @@
+package com.d_project.qrcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class QRCodeCacheTest {
+
+  @Test
+  public void test1() {
+    QRCodeCache cache = new QRCodeCache(1024 * 1024);
+
+    BitMatrix m1 = cache.make(newQRCode("https://example.com/") );
+    BitMatrix m2 = cache.make(newQRCode("https://example.com/") );
+    cache.make(newQRCode("https://example.com/a") );
+
+    Assertions.assertSame(m1, m2);
+    Assertions.assertEquals(1, cache.getHitCount() );
+    Assertions.assertEquals(2, cache.getMissCount() );
+    Assertions.assertEquals(2, cache.size() );
+
+    QRCode qr = newQRCode("https://example.com/");
+    qr.make();
+    Assertions.assertEquals(qr.toBitMatrix(), m1);
+    for (int row = 0; row < qr.getModuleCount(); row++) {
+      for (int col = 0; col < qr.getModuleCount(); col++) {
+        Assertions.assertEquals(qr.isDark(row, col), m1.isDark(row, col) );
+      }
+    }
+  }
+
+  @Test
+  public void test2() {
+    QRCodeCache cache = new QRCodeCache(16 * 1024);
+    for (int i = 0; i < 1000; i++) {
+      cache.make(newQRCode("ID" + i) );
+    }
+    Assertions.assertTrue(cache.weight() <= 16 * 1024);
+    Assertions.assertEquals(1000 - cache.size(), cache.getEvictionCount() );
+  }
+
+  @Test
+  public void test3() {
+    // 型番 40 のエントリ(約 4.3KB)も小さい最大重量でキャッシュされる
+    QRCodeCache cache = new QRCodeCache(16 * 1024);
+    QRCode qr = new QRCode();
+    qr.setTypeNumber(40);
+    qr.setErrorCorrectionLevel(ErrorCorrectionLevel.L);
+    qr.addData("https://example.com/");
+    BitMatrix m1 = cache.make(qr);
+    Assertions.assertEquals(1, cache.size() );
+    Assertions.assertTrue(cache.weight() > 4 * 1024);
+    Assertions.assertSame(m1, cache.make(qr) );
+    Assertions.assertEquals(1, cache.getHitCount() );
+  }
+
+  @Test
+  public void test4() {
+    QRCodeCache cache = new QRCodeCache(1024 * 1024);
+    String data = "https://example.com/item/4";
+    BitMatrix m1 = cache.make(data, ErrorCorrectionLevel.L, 40, true);
+    Assertions.assertEquals(
+        QRCode.getMinimumQRCode(data, ErrorCorrectionLevel.L, 40, true).toBitMatrix(), m1);
+    Assertions.assertEquals(ErrorCorrectionLevel.M, m1.getErrorCorrectionLevel() );
+    Assertions.assertSame(m1, cache.make(data, ErrorCorrectionLevel.L, 40, true) );
+    Assertions.assertEquals(1, cache.getHitCount() );
+  }
+
+  private static QRCode newQRCode(String data) {
+    QRCode qr = new QRCode();
+    qr.setTypeNumber(3);
+    qr.setErrorCorrectionLevel(ErrorCorrectionLevel.M);
+    qr.addData(data);
+    return qr;
+  }
+}
@@ -0,0 +1,37 @@
+package com.d_project.qrcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class QRCodeProcessorTest {
+
+  @Test
+  public void test() throws Exception {
+
+    QRCodeProcessor<String, QRCode> encoder = QRCodeProcessor.encoder(ErrorCorrectionLevel.M, 4, 8);
+    QRCodeProcessor<QRCode, byte[]> writer = QRCodeProcessor.gifWriter(2, 8, 4, 8);
+    encoder.subscribe(writer);
+
+    AtomicInteger count = new AtomicInteger();
+    CompletableFuture<Void> done = writer.consume(gif -> {
+      Assertions.assertEquals('G', gif[0]);
+      Assertions.assertEquals(';', gif[gif.length - 1]);
+      count.incrementAndGet();
+    });
+
+    try (SubmissionPublisher<String> source = new SubmissionPublisher<>() ) {
+      source.subscribe(encoder);
+      for (int i = 0; i < 100; i++) {
+        source.submit("https://example.com/t/" + i);
+      }
+    }
+
+    done.get(30, TimeUnit.SECONDS);
+    Assertions.assertEquals(100, count.get() );
+  }
+}
@@ -0,0 +1,69 @@
+package com.d_project.qrcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class QRSequenceTest {
+
+  @Test
+  public void test() {
+    QRSequence sequence = new QRSequence("TKT-", 9, "", ErrorCorrectionLevel.M, 995, 1005);
+    int count = 0;
+    while (sequence.hasNext() ) {
+      QRCode qr = sequence.next();
+
+      QRCode expected = new QRCode();
+      expected.setTypeNumber(sequence.getTypeNumber() );
+      expected.setErrorCorrectionLevel(ErrorCorrectionLevel.M);
+      expected.addData("TKT-", Mode.MODE_ALPHA_NUM);
+      expected.addData(String.format("%09d", 995 + count), Mode.MODE_NUMBER);
+      expected.make();
+
+      Assertions.assertEquals(expected.toBitMatrix(), qr.toBitMatrix() );
+      count++;
+    }
+    Assertions.assertEquals(11, count);
+  }
+
+  @Test
+  public void testMaskInterval() {
+    for (int interval : new int[]{0, 3}) {
+      QRSequence sequence = new QRSequence("TKT-", 9, "", ErrorCorrectionLevel.M, 1, 40);
+      sequence.setMaskInterval(interval);
+      int count = 0;
+      int mask = -1;
+      boolean reused = false;
+      while (sequence.hasNext() ) {
+        QRCode qr = sequence.next();
+        String serial = String.format("%09d", 1 + count);
+
+        // 最適なマスクパターン
+        QRCode best = new QRCode();
+        best.setTypeNumber(sequence.getTypeNumber() );
+        best.setErrorCorrectionLevel(ErrorCorrectionLevel.M);
+        best.addData("TKT-", Mode.MODE_ALPHA_NUM);
+        best.addData(serial, Mode.MODE_NUMBER);
+        best.make();
+
+        // 最初及び N 件ごとに評価し、それ以外は直前のマスクパターンを使う
+        if (count == 0 || (interval > 0 && count % interval == 0) ) {
+          mask = best.getMaskPattern();
+        } else if (best.getMaskPattern() != mask) {
+          reused = true;
+        }
+        Assertions.assertEquals(mask, qr.getMaskPattern() );
+
+        QRCode expected = new QRCode();
+        expected.setTypeNumber(sequence.getTypeNumber() );
+        expected.setErrorCorrectionLevel(ErrorCorrectionLevel.M);
+        expected.make(QRCode.createData(sequence.getTypeNumber(), ErrorCorrectionLevel.M,
+            new QRData[]{new QRAlphaNum("TKT-"), new QRNumber(serial)}), mask);
+        Assertions.assertEquals(expected.toBitMatrix(), qr.toBitMatrix() );
+        count++;
+      }
+      Assertions.assertEquals(40, count);
+      // 最適でないマスクパターンを再利用した場合を含む
+      Assertions.assertTrue(reused, "interval: " + interval);
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.d_project.qrcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class QRTemplateTest {
+
+  @Test
+  public void test1() {
+    QRTemplate template = new QRTemplate("https://example.com/t/", Mode.MODE_8BIT_BYTE, 8, "",
+        ErrorCorrectionLevel.M);
+    for (String token : new String[]{"a1b2c3d4", "00000000", "zzzzzzzz"}) {
+      QRCode expected = new QRCode();
+      expected.setTypeNumber(template.getTypeNumber() );
+      expected.setErrorCorrectionLevel(ErrorCorrectionLevel.M);
+      expected.addData("https://example.com/t/", Mode.MODE_8BIT_BYTE);
+      expected.addData(token, Mode.MODE_8BIT_BYTE);
+      expected.make();
+
+      Assertions.assertEquals(expected.toBitMatrix(), template.make(token).toBitMatrix() );
+    }
+  }
+
+  @Test
+  public void test2() {
+    // 可変部分がコード語の境界から始まらない場合
+    QRTemplate template = new QRTemplate("TKT-", Mode.MODE_NUMBER, 9, "/A", ErrorCorrectionLevel.H, 5);
+    for (String serial : new String[]{"000000001", "123456789", "999999999"}) {
+      QRCode expected = new QRCode();
+      expected.setTypeNumber(5);
+      expected.setErrorCorrectionLevel(ErrorCorrectionLevel.H);
+      expected.addData("TKT-", Mode.MODE_ALPHA_NUM);
+      expected.addData(serial, Mode.MODE_NUMBER);
+      expected.addData("/A", Mode.MODE_ALPHA_NUM);
+      expected.make();
+
+      Assertions.assertEquals(expected.toBitMatrix(), template.make(serial).toBitMatrix() );
+    }
+  }
+
+  @Test
+  public void test3() {
+    QRTemplate template = new QRTemplate("https://example.com/t/", Mode.MODE_8BIT_BYTE, 8, "",
+        ErrorCorrectionLevel.M);
+    Assertions.assertEquals(-1, template.getMaskPattern() );
+    Assertions.assertThrows(IllegalArgumentException.class, () -> template.setMaskPattern(8) );
+    for (int mask = 0; mask < 8; mask++) {
+      template.setMaskPattern(mask);
+      QRCode expected = new QRCode();
+      expected.setTypeNumber(template.getTypeNumber() );
+      expected.setErrorCorrectionLevel(ErrorCorrectionLevel.M);
+      expected.addData("https://example.com/t/", Mode.MODE_8BIT_BYTE);
+      expected.addData("a1b2c3d4", Mode.MODE_8BIT_BYTE);
+      expected.make(QRCode.createData(template.getTypeNumber(), ErrorCorrectionLevel.M,
+          new QRData[] {new QR8BitByte("https://example.com/t/"), new QR8BitByte("a1b2c3d4")}), mask);
+
+      QRCode qr = template.make("a1b2c3d4");
+      Assertions.assertEquals(mask, qr.getMaskPattern() );
+      Assertions.assertEquals(expected.toBitMatrix(), qr.toBitMatrix() );
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package com.d_project.qrcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SVGWriterTest {
+
+  @Test
+  public void test1() throws Exception {
+    BitMatrix matrix = QRCode.getMinimumQRCode("https://example.com/svg",
+        ErrorCorrectionLevel.M).toBitMatrix();
+
+    StringBuilder svg = new StringBuilder();
+    SVGWriter.write(matrix, 2, 3, 0x123456, 0xfedcba, false, svg);
+    String s = svg.toString();
+    int size = matrix.getModuleCount() * 2 + 6;
+    Assertions.assertTrue(s.startsWith("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\""
+        + size + "\" height=\"" + size + "\""), s);
+    Assertions.assertTrue(s.contains("fill=\"#fedcba\""), s);
+    Assertions.assertTrue(s.contains("fill=\"#123456\""), s);
+    Assertions.assertEquals(1, s.split("<path").length - 1);
+    Assertions.assertTrue(s.endsWith("</svg>\n") );
+
+    String d = s.substring(s.indexOf(" d=\"") + 4, s.indexOf("\"/>\n</svg>") );
+    assertPath(matrix, 2, 3, d);
+  }
+
+  @Test
+  public void test2() throws Exception {
+    for (String text : new String[]{"a", "https://example.com/trace", "0123456789".repeat(20)}) {
+      BitMatrix matrix = QRCode.getMinimumQRCode(text, ErrorCorrectionLevel.Q).toBitMatrix();
+
+      StringBuilder runs = new StringBuilder();
+      SVGWriter.writePath(matrix, 3, 4, false, runs);
+      assertPath(matrix, 3, 4, runs.toString() );
+
+      StringBuilder outline = new StringBuilder();
+      SVGWriter.writePath(matrix, 3, 4, true, outline);
+      assertPath(matrix, 3, 4, outline.toString() );
+      Assertions.assertTrue(outline.length() < runs.length() );
+    }
+  }
+
+  /**
+   * 各ピクセルの中心の回転数 (nonzero) が暗モジュールと一致することを確認する。
+   */
+  private static void assertPath(BitMatrix matrix, int cellSize, int margin, String d) {
+    // 垂直の辺 {x, y0, y1}
+    List<int[]> edges = new ArrayList<>();
+    int x = 0;
+    int y = 0;
+    int startX = 0;
+    int startY = 0;
+    int i = 0;
+    while (i < d.length() ) {
+      char c = d.charAt(i++);
+      if (c == 'z') {
+        if (x == startX) {
+          edges.add(new int[]{x, y, startY});
+        } else {
+          Assertions.assertEquals(startY, y);
+        }
+        x = startX;
+        y = startY;
+        continue;
+      }
+      int j = i;
+      while (j < d.length() && "-0123456789,".indexOf(d.charAt(j) ) != -1) {
+        j++;
+      }
+      String arg = d.substring(i, j);
+      i = j;
+      switch (c) {
+      case 'M' -> {
+        String[] xy = arg.split(",");
+        x = startX = Integer.parseInt(xy[0]);
+        y = startY = Integer.parseInt(xy[1]);
+      }
+      case 'h' -> x += Integer.parseInt(arg);
+      case 'v' -> {
+        int dy = Integer.parseInt(arg);
+        edges.add(new int[]{x, y, y + dy});
+        y += dy;
+      }
+      default -> Assertions.fail("command: " + c);
+      }
+    }
+
+    int imageSize = matrix.getModuleCount() * cellSize + margin * 2;
+    for (int py = 0; py < imageSize; py++) {
+      for (int px = 0; px < imageSize; px++) {
+        int winding = 0;
+        for (int[] e : edges) {
+          if (e[0] > px && Math.min(e[1], e[2]) <= py && py < Math.max(e[1], e[2]) ) {
+            winding += e[2] > e[1] ? 1 : -1;
+          }
+        }
+        int row = (py - margin) / cellSize;
+        int col = (px - margin) / cellSize;
+        boolean dark = margin <= px && px < imageSize - margin
+            && margin <= py && py < imageSize - margin
+            && matrix.isDark(row, col);
+        Assertions.assertEquals(dark, winding != 0, "x: " + px + " /y: " + py);
+        if (dark) {
+          Assertions.assertEquals(1, Math.abs(winding) );
+        }
+      }
+    }
+  }
+}
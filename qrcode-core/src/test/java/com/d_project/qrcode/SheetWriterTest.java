@@ -0,0 +1,148 @@
+package com.d_project.qrcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+public class SheetWriterTest {
+
+  @Test
+  public void test() throws Exception {
+    List<String> payloads = new ArrayList<>();
+    for (int i = 0; i < 11; i++) {
+      payloads.add("LABEL-" + i + (i % 3 == 0 ? "-https://example.com/sheet" : "") );
+    }
+    int columns = 3;
+    int tileWidth = 77;
+    int tileHeight = 81;
+    int cellSize = 2;
+    int margin = 4;
+
+    List<BitMatrix> matrices = new ArrayList<>();
+    for (String payload : payloads) {
+      matrices.add(QRCode.getMinimumQRCode(payload, ErrorCorrectionLevel.M).toBitMatrix() );
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (String format : new String[]{"png", "gif"}) {
+        for (boolean parallel : new boolean[]{false, true}) {
+          SheetWriter sheet = new SheetWriter(columns, tileWidth, tileHeight, cellSize, margin,
+              ErrorCorrectionLevel.M);
+          if (parallel) {
+            sheet.setParallel(executor, 3);
+          }
+          ByteArrayOutputStream actual = new ByteArrayOutputStream();
+          if (parallel) {
+            sheet.write(payloads, format, actual);
+          } else {
+            sheet.write(payloads.iterator(), payloads.size(), format, actual);
+          }
+
+          // 1ピクセルずつ作成した走査線と比較
+          int width = sheet.getWidth();
+          int height = sheet.getHeight(payloads.size() );
+          Assertions.assertEquals(4 * tileHeight, height);
+          ByteArrayOutputStream expected = new ByteArrayOutputStream();
+          ScanlineWriter writer = ScanlineWriter.create(format, expected, width, height);
+          if (parallel && writer instanceof PNGWriter png) {
+            png.setParallel(executor, 3, tileHeight);
+          }
+          byte[] line = new byte[(width + 7) / 8];
+          for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+              int i = y / tileHeight * columns + x / tileWidth;
+              boolean dark = false;
+              if (i < payloads.size() ) {
+                BitMatrix matrix = matrices.get(i);
+                int size = matrix.getModuleCount() * cellSize;
+                int tx = x % tileWidth - (tileWidth - size) / 2;
+                int ty = y % tileHeight - (tileHeight - size) / 2;
+                dark = 0 <= tx && tx < size && 0 <= ty && ty < size
+                    && matrix.isDark(ty / cellSize, tx / cellSize);
+              }
+              if (dark) {
+                line[x >>> 3] |= (byte) (0x80 >>> (x & 7) );
+              } else {
+                line[x >>> 3] &= (byte) ~(0x80 >>> (x & 7) );
+              }
+            }
+            writer.writeRow(line);
+          }
+          writer.finish();
+          Assertions.assertArrayEquals(expected.toByteArray(), actual.toByteArray(), format);
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testTooLarge() {
+    SheetWriter sheet = new SheetWriter(2, 40, 40, 2, 4, ErrorCorrectionLevel.H);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      sheet.setParallel(executor, 2);
+      Assertions.assertThrows(IllegalArgumentException.class, () ->
+          sheet.write(List.of("a", "https://example.com/too-large"), "gif", new ByteArrayOutputStream() ) );
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testMaxTypeNumber() throws Exception {
+    // 型番 10 (L) に収まらないデータ
+    List<String> payloads = List.of("0123456789".repeat(70) );
+    SheetWriter sheet = new SheetWriter(1, 200, 200, 1, 4, ErrorCorrectionLevel.L);
+    Assertions.assertThrows(IllegalArgumentException.class, () ->
+        sheet.write(payloads, "png", new ByteArrayOutputStream() ) );
+
+    sheet.setMaxTypeNumber(40);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    sheet.write(payloads, "png", out);
+    Assertions.assertTrue(out.size() > 0);
+
+    Assertions.assertThrows(IllegalArgumentException.class, () -> sheet.setMaxTypeNumber(41) );
+    Assertions.assertThrows(IllegalArgumentException.class, () -> sheet.setMaxTypeNumber(0) );
+  }
+
+  @Test
+  public void testIterator() throws Exception {
+    SheetWriter sheet = new SheetWriter(2, 60, 60, 2, 4, ErrorCorrectionLevel.M);
+    Iterator<String> payloads = IntStream.range(0, 1000).mapToObj(i -> "ID" + i).iterator();
+
+    // count 個だけ読み込む
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    sheet.write(List.of("ID0", "ID1", "ID2"), "png", expected);
+    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    sheet.write(payloads, 3, "png", actual);
+    Assertions.assertArrayEquals(expected.toByteArray(), actual.toByteArray() );
+    Assertions.assertEquals("ID3", payloads.next() );
+
+    Assertions.assertThrows(IllegalArgumentException.class, () ->
+        sheet.write(List.of("a", "b", "c").iterator(), 5, "gif", new ByteArrayOutputStream() ) );
+  }
+
+  @Test
+  public void testBoost() throws Exception {
+    // 型番 2 のまま L から M に引き上げられるデータ
+    List<String> payloads = List.of("https://example.com/item/4");
+    SheetWriter boosted = new SheetWriter(1, 60, 60, 2, 4, ErrorCorrectionLevel.L);
+    boosted.setBoostErrorCorrectionLevel(true);
+    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    boosted.write(payloads, "png", actual);
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    new SheetWriter(1, 60, 60, 2, 4, ErrorCorrectionLevel.M).write(payloads, "png", expected);
+    Assertions.assertArrayEquals(expected.toByteArray(), actual.toByteArray() );
+  }
+}
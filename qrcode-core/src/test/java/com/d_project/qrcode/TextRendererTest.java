@@ -0,0 +1,82 @@
+package com.d_project.qrcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class TextRendererTest {
+
+  @Test
+  public void test() throws Exception {
+    QRCode large = new QRCode();
+    large.setTypeNumber(15);
+    large.setErrorCorrectionLevel(ErrorCorrectionLevel.L);
+    large.addData("https://example.com/terminal/large");
+    large.make();
+    // 型番 15 は 77 モジュールで、行が2ワードにまたがる
+    BitMatrix[] matrices = {
+        QRCode.getMinimumQRCode("text", ErrorCorrectionLevel.L).toBitMatrix(),
+        QRCode.getMinimumQRCode("https://example.com/terminal/0123456789", ErrorCorrectionLevel.L).toBitMatrix(),
+        large.toBitMatrix()
+    };
+    for (BitMatrix matrix : matrices) {
+      for (int margin : new int[]{0, 1, 4, 37}) {
+        int size = matrix.getModuleCount() + margin * 2;
+
+        StringBuilder ascii = new StringBuilder();
+        TextRenderer.writeASCII(matrix, margin, '#', '.', ascii);
+        String[] lines = ascii.toString().split("\n");
+        Assertions.assertEquals(size, lines.length);
+        for (int y = 0; y < size; y++) {
+          Assertions.assertEquals(size * 2, lines[y].length() );
+          for (int x = 0; x < size; x++) {
+            char c = isDark(matrix, margin, x, y) ? '#' : '.';
+            Assertions.assertEquals(c, lines[y].charAt(x * 2) );
+            Assertions.assertEquals(c, lines[y].charAt(x * 2 + 1) );
+          }
+        }
+
+        StringBuilder blocks = new StringBuilder();
+        TextRenderer.writeHalfBlocks(matrix, margin, true, blocks);
+        lines = blocks.toString().split("\n");
+        Assertions.assertEquals( (size + 1) / 2, lines.length);
+        for (int y = 0; y < lines.length; y++) {
+          String line = lines[y];
+          Assertions.assertTrue(line.startsWith("\u001b[30;47m") && line.endsWith("\u001b[0m") );
+          line = line.substring(8, line.length() - 4);
+          Assertions.assertEquals(size, line.length() );
+          for (int x = 0; x < size; x++) {
+            char c = line.charAt(x);
+            Assertions.assertEquals(isDark(matrix, margin, x, y * 2), c == '▀' || c == '█');
+            Assertions.assertEquals(isDark(matrix, margin, x, y * 2 + 1), c == '▄' || c == '█');
+          }
+        }
+
+        StringBuilder braille = new StringBuilder();
+        TextRenderer.writeBraille(matrix, margin, braille);
+        lines = braille.toString().split("\n");
+        Assertions.assertEquals( (size + 3) / 4, lines.length);
+        int[][] dots = {{0x01, 0x08}, {0x02, 0x10}, {0x04, 0x20}, {0x40, 0x80}};
+        for (int y = 0; y < lines.length; y++) {
+          Assertions.assertEquals( (size + 1) / 2, lines[y].length() );
+          for (int x = 0; x < lines[y].length(); x++) {
+            int c = lines[y].charAt(x) - 0x2800;
+            Assertions.assertTrue(0 <= c && c < 256);
+            for (int i = 0; i < 4; i++) {
+              for (int j = 0; j < 2; j++) {
+                Assertions.assertEquals(isDark(matrix, margin, x * 2 + j, y * 4 + i),
+                    (c & dots[i][j]) != 0);
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private static boolean isDark(BitMatrix matrix, int margin, int x, int y) {
+    int col = x - margin;
+    int row = y - margin;
+    return 0 <= row && row < matrix.getModuleCount() && 0 <= col && col < matrix.getModuleCount()
+        && matrix.isDark(row, col);
+  }
+}
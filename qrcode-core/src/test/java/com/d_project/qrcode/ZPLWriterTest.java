@@ -0,0 +1,153 @@
+package com.d_project.qrcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.Inflater;
+
+public class ZPLWriterTest {
+
+  @Test
+  public void test() throws Exception {
+    for (String text : new String[]{"ZPL", "https://example.com/zebra/0123456789"}) {
+      BitMatrix matrix = QRCode.getMinimumQRCode(text, ErrorCorrectionLevel.M).toBitMatrix();
+      for (int dots : new int[]{1, 3, 8}) {
+        for (int margin : new int[]{0, 5}) {
+          int size = matrix.getModuleCount() * dots + margin * 2;
+          int rowBytes = (size + 7) / 8;
+          byte[] expected = new byte[rowBytes * size];
+          for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+              if (margin <= x && x < size - margin && margin <= y && y < size - margin
+                  && matrix.isDark( (y - margin) / dots, (x - margin) / dots) ) {
+                expected[y * rowBytes + (x >>> 3)] |= (byte) (0x80 >>> (x & 7) );
+              }
+            }
+          }
+
+          int[] lengths = new int[3];
+          for (int compression : new int[]{ZPLWriter.ASCII, ZPLWriter.B64, ZPLWriter.Z64}) {
+            StringBuilder out = new StringBuilder();
+            ZPLWriter.writeGraphicField(matrix, dots, margin, compression, out);
+            String gf = out.toString();
+            String header = "^GFA," + expected.length + "," + expected.length + "," + rowBytes + ",";
+            Assertions.assertTrue(gf.startsWith(header), gf);
+            byte[] actual = decode(gf.substring(header.length() ), rowBytes, expected.length);
+            Assertions.assertArrayEquals(expected, actual, "compression: " + compression);
+            lengths[compression] = gf.length();
+          }
+          if (dots > 1) {
+            Assertions.assertTrue(lengths[ZPLWriter.ASCII] < expected.length * 2);
+            Assertions.assertTrue(lengths[ZPLWriter.Z64] < lengths[ZPLWriter.B64]);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testLabel() throws Exception {
+    BitMatrix matrix = QRCode.getMinimumQRCode("label", ErrorCorrectionLevel.Q).toBitMatrix();
+    StringBuilder out = new StringBuilder();
+    ZPLWriter.writeLabel(matrix, 4, 30, 40, ZPLWriter.Z64, out);
+    String label = out.toString();
+    Assertions.assertTrue(label.startsWith("^XA\n^FO30,40^GFA,") );
+    Assertions.assertTrue(label.endsWith("^FS\n^XZ\n") );
+
+    // 既定の余白は4モジュール分
+    StringBuilder field = new StringBuilder();
+    ZPLWriter.writeGraphicField(matrix, 4, 16, ZPLWriter.Z64, field);
+    Assertions.assertEquals("^XA\n^FO30,40" + field + "^FS\n^XZ\n", label);
+
+    StringBuilder noMargin = new StringBuilder();
+    ZPLWriter.writeLabel(matrix, 4, 0, 30, 40, ZPLWriter.Z64, noMargin);
+    field.setLength(0);
+    ZPLWriter.writeGraphicField(matrix, 4, 0, ZPLWriter.Z64, field);
+    Assertions.assertEquals("^XA\n^FO30,40" + field + "^FS\n^XZ\n", noMargin.toString() );
+    Assertions.assertThrows(IllegalArgumentException.class, () ->
+        ZPLWriter.writeGraphicField(matrix, 4, 0, 3, new StringBuilder() ) );
+  }
+
+  /**
+   * ^GF のデータを復号する。
+   */
+  private static byte[] decode(String data, int rowBytes, int total) throws Exception {
+    if (data.startsWith(":B64:") || data.startsWith(":Z64:") ) {
+      int end = data.lastIndexOf(':');
+      String base64 = data.substring(5, end);
+      Assertions.assertEquals(crc16(base64), Integer.parseInt(data.substring(end + 1), 16) );
+      Assertions.assertEquals(4, data.length() - end - 1);
+      byte[] bytes = Base64.getDecoder().decode(base64);
+      if (data.startsWith(":B64:") ) {
+        return bytes;
+      }
+      Inflater inflater = new Inflater();
+      inflater.setInput(bytes);
+      byte[] result = new byte[total];
+      Assertions.assertEquals(total, inflater.inflate(result) );
+      Assertions.assertTrue(inflater.finished() );
+      inflater.end();
+      return result;
+    }
+
+    // ASCII 圧縮
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    StringBuilder row = new StringBuilder();
+    String previous = null;
+    int count = 0;
+    for (int i = 0; i < data.length(); i++) {
+      char c = data.charAt(i);
+      if (c == ':') {
+        Assertions.assertEquals(0, row.length() );
+        Assertions.assertEquals(0, count);
+        row.append(previous);
+      } else if (c == ',' || c == '!') {
+        Assertions.assertEquals(0, count);
+        while (row.length() < rowBytes * 2) {
+          row.append(c == ',' ? '0' : 'F');
+        }
+      } else if ('G' <= c && c <= 'Y') {
+        count += c - 'G' + 1;
+        continue;
+      } else if ('g' <= c && c <= 'z') {
+        count += (c - 'g' + 1) * 20;
+        continue;
+      } else {
+        Assertions.assertTrue("0123456789ABCDEF".indexOf(c) != -1, "char: " + c);
+        for (int n = 0; n < Math.max(1, count); n++) {
+          row.append(c);
+        }
+        count = 0;
+      }
+      Assertions.assertTrue(row.length() <= rowBytes * 2);
+      if (row.length() == rowBytes * 2) {
+        previous = row.toString();
+        for (int j = 0; j < previous.length(); j += 2) {
+          result.write(Integer.parseInt(previous.substring(j, j + 2), 16) );
+        }
+        row.setLength(0);
+      }
+    }
+    Assertions.assertEquals(0, row.length() );
+    return result.toByteArray();
+  }
+
+  private static int crc16(String s) {
+    int crc = 0;
+    for (byte b : s.getBytes(StandardCharsets.US_ASCII) ) {
+      for (int i = 7; i >= 0; i--) {
+        boolean bit = ( (b >>> i) & 1) != 0;
+        boolean top = (crc & 0x8000) != 0;
+        crc = (crc << 1) & 0xffff;
+        if (bit ^ top) {
+          crc ^= 0x1021;
+        }
+      }
+    }
+    return crc;
+  }
+}